@@ -49,6 +49,7 @@ dependencies {
     implementation(libs.kotlinx.datetime)
     implementation(libs.kotlinx.coroutines.reactor)
     implementation(libs.spring.boot.web)
+    implementation(libs.spring.boot.actuator)
     implementation(libs.mysqlConnector)
     implementation(libs.spring.cloud)
     implementation(libs.discord4j)
@@ -65,6 +66,7 @@ dependencies {
     implementation(libs.springdoc)
     implementation(libs.guava)
     implementation(libs.opencsv)
+    implementation(libs.micrometer)
 
     testImplementation(libs.spring.boot.test)
     testImplementation(libs.trove4j)
@@ -20,10 +20,11 @@ import com.faendir.zachtronics.bot.cw.model.*;
 import com.faendir.zachtronics.bot.git.GitRepository;
 import com.faendir.zachtronics.bot.model.DisplayContext;
 import com.faendir.zachtronics.bot.reddit.RedditService;
+import com.faendir.zachtronics.bot.reddit.RedditWikiWriter;
 import com.faendir.zachtronics.bot.reddit.Subreddit;
 import com.faendir.zachtronics.bot.repository.AbstractSolutionRepository;
-import com.faendir.zachtronics.bot.repository.SubmitResult;
-import com.faendir.zachtronics.bot.validation.ValidationResult;
+import com.faendir.zachtronics.bot.repository.DominanceIndex;
+import com.faendir.zachtronics.bot.repository.SkylineIndex;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -33,8 +34,6 @@ import org.springframework.stereotype.Component;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.function.Function;
@@ -48,6 +47,7 @@ import static com.faendir.zachtronics.bot.cw.model.CwCategory.SIZE;
 public class CwSolutionRepository extends AbstractSolutionRepository<CwCategory, CwPuzzle, CwScore, CwSubmission, CwRecord, CwSolution> {
     private final CwCategory[][] wikiCategories = {{SIZE}, {FOOTPRINT}};
     private final RedditService redditService;
+    private final RedditWikiWriter wikiWriter;
     private final Subreddit subreddit = Subreddit.LASTCALLBBS;
     private final String wikiPageName = "chipwizard";
 
@@ -57,28 +57,6 @@ public class CwSolutionRepository extends AbstractSolutionRepository<CwCategory,
     private final Function<String[], CwSolution> solUnmarshaller = CwSolution::unmarshal;
     private final Comparator<CwSolution> archiveComparator = Comparator.comparing(CwSolution::getScore, SIZE.getScoreComparator());
 
-    @NotNull
-    @Override
-    public List<SubmitResult<CwRecord, CwCategory>> submitAll(
-            @NotNull Collection<? extends ValidationResult<CwSubmission>> validationResults) {
-        try (GitRepository.ReadWriteAccess access = gitRepo.acquireWriteAccess()) {
-            List<SubmitResult<CwRecord, CwCategory>> submitResults = new ArrayList<>();
-
-            for (ValidationResult<CwSubmission> validationResult : validationResults) {
-                if (validationResult instanceof ValidationResult.Valid<CwSubmission>) {
-                    CwSubmission submission = validationResult.getSubmission();
-                    submitResults.add(submitOne(access, submission, (sub, wonCategories) -> {}));
-                }
-                else {
-                    submitResults.add(new SubmitResult.Failure<>(validationResult.getMessage()));
-                }
-            }
-
-            access.push();
-            return submitResults;
-        }
-    }
-
     @Override
     protected CwSolution makeCandidateSolution(@NotNull CwSubmission submission) {
         return new CwSolution(submission.getScore(), submission.getAuthor(), submission.getDisplayLink());
@@ -104,6 +82,15 @@ public class CwSolutionRepository extends AbstractSolutionRepository<CwCategory,
         }
     }
 
+    @NotNull
+    @Override
+    protected DominanceIndex<CwSolution> makeDominanceIndex(@NotNull List<CwSolution> solutions) {
+        return new SkylineIndex<>(solutions, s -> {
+            CwScore score = s.getScore();
+            return new int[]{score.getWidth(), score.getHeight(), score.getFootprint()};
+        });
+    }
+
     @Override
     protected boolean alreadyPresent(@NotNull CwSolution candidate, @NotNull CwSolution solution) {
         return candidate.getScore().equals(solution.getScore()) &&
@@ -26,14 +26,19 @@ import com.faendir.zachtronics.bot.cw.rest.dto.CwGroupDTO;
 import com.faendir.zachtronics.bot.cw.rest.dto.CwPuzzleDTO;
 import com.faendir.zachtronics.bot.cw.rest.dto.CwRecordDTO;
 import com.faendir.zachtronics.bot.repository.CategoryRecord;
+import com.faendir.zachtronics.bot.rest.ArchiveExport;
 import com.faendir.zachtronics.bot.rest.GameRestController;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Arrays;
 import java.util.EnumSet;
@@ -45,6 +50,7 @@ import java.util.List;
 public class CwController implements GameRestController<CwGroupDTO, CwPuzzleDTO, CwCategoryDTO, CwRecordDTO> {
     
     private final CwSolutionRepository repository;
+    private final ObjectMapper objectMapper;
     
     @Getter
     private final List<CwGroupDTO> groups = Arrays.stream(CwGroup.values()).map(CwGroupDTO::fromGroup).toList();
@@ -92,6 +98,14 @@ public class CwController implements GameRestController<CwGroupDTO, CwPuzzleDTO,
             return null;
     }
 
+    @Override
+    public ResponseEntity<StreamingResponseBody> export(String commit, @NotNull ArchiveExport.Format format,
+                                                        @NotNull ServletWebRequest request) {
+        return ArchiveExport.respond("cw", commit, format, request, objectMapper, repository::exportCommit,
+                                     (hash, sink) -> repository.export(hash, Arrays.asList(CwPuzzle.values()), sink),
+                                     CwPuzzle::name, CwRecordDTO::fromCategoryRecord);
+    }
+
     private static CwPuzzle findPuzzle(String puzzleId) {
         return Arrays.stream(CwPuzzle.values())
                      .filter(p -> p.name().equalsIgnoreCase(puzzleId))
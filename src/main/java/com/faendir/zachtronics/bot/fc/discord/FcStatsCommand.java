@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2023
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.faendir.zachtronics.bot.fc.discord;
+
+import com.faendir.zachtronics.bot.discord.command.AbstractStatsCommand;
+import com.faendir.zachtronics.bot.fc.FcQualifier;
+import com.faendir.zachtronics.bot.fc.model.FcCategory;
+import com.faendir.zachtronics.bot.fc.model.FcPuzzle;
+import com.faendir.zachtronics.bot.fc.model.FcRecord;
+import com.faendir.zachtronics.bot.fc.model.FcSubmission;
+import com.faendir.zachtronics.bot.fc.repository.FcSolutionRepository;
+import com.faendir.zachtronics.bot.validation.ValidationResult;
+import discord4j.core.event.domain.interaction.ChatInputInteractionEvent;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+@RequiredArgsConstructor
+@Component
+@FcQualifier
+public class FcStatsCommand extends AbstractStatsCommand<FcCategory, FcPuzzle, FcSubmission, FcRecord> {
+    @Getter
+    private final FcSolutionRepository repository;
+
+    @NotNull
+    @Override
+    protected Collection<ValidationResult<FcSubmission>> makeSubmissions(@NotNull String link, @NotNull String author,
+                                                                         @NotNull ChatInputInteractionEvent event) {
+        return FcSubmission.fromLink(link, author);
+    }
+}
@@ -20,10 +20,11 @@ import com.faendir.zachtronics.bot.fc.model.*;
 import com.faendir.zachtronics.bot.git.GitRepository;
 import com.faendir.zachtronics.bot.model.DisplayContext;
 import com.faendir.zachtronics.bot.reddit.RedditService;
+import com.faendir.zachtronics.bot.reddit.RedditWikiWriter;
 import com.faendir.zachtronics.bot.reddit.Subreddit;
 import com.faendir.zachtronics.bot.repository.AbstractSolutionRepository;
-import com.faendir.zachtronics.bot.repository.SubmitResult;
-import com.faendir.zachtronics.bot.validation.ValidationResult;
+import com.faendir.zachtronics.bot.repository.DominanceIndex;
+import com.faendir.zachtronics.bot.repository.SkylineIndex;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -33,8 +34,6 @@ import org.springframework.stereotype.Component;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.function.Function;
@@ -50,6 +49,7 @@ public class FcSolutionRepository extends AbstractSolutionRepository<FcCategory,
                                                    {STC, SCW, SWT},
                                                    {WTC, WCS, WST}};
     private final RedditService redditService;
+    private final RedditWikiWriter wikiWriter;
     private final Subreddit subreddit = Subreddit.LASTCALLBBS;
     private final String wikiPageName = "foodcourt";
 
@@ -59,28 +59,6 @@ public class FcSolutionRepository extends AbstractSolutionRepository<FcCategory,
     private final Function<String[], FcSolution> solUnmarshaller = FcSolution::unmarshal;
     private final Comparator<FcSolution> archiveComparator = Comparator.comparing(FcSolution::getScore, TCS.getScoreComparator());
 
-    @NotNull
-    @Override
-    public List<SubmitResult<FcRecord, FcCategory>> submitAll(
-            @NotNull Collection<? extends ValidationResult<FcSubmission>> validationResults) {
-        try (GitRepository.ReadWriteAccess access = gitRepo.acquireWriteAccess()) {
-            List<SubmitResult<FcRecord, FcCategory>> submitResults = new ArrayList<>();
-
-            for (ValidationResult<FcSubmission> validationResult : validationResults) {
-                if (validationResult instanceof ValidationResult.Valid<FcSubmission>) {
-                    FcSubmission submission = validationResult.getSubmission();
-                    submitResults.add(submitOne(access, submission, (sub, wonCategories) -> {}));
-                }
-                else {
-                    submitResults.add(new SubmitResult.Failure<>(validationResult.getMessage()));
-                }
-            }
-
-            access.push();
-            return submitResults;
-        }
-    }
-
     @Override
     protected FcSolution makeCandidateSolution(@NotNull FcSubmission submission) {
         return new FcSolution(submission.getScore(), submission.getAuthor(), submission.getDisplayLink());
@@ -107,6 +85,15 @@ public class FcSolutionRepository extends AbstractSolutionRepository<FcCategory,
         }
     }
 
+    @NotNull
+    @Override
+    protected DominanceIndex<FcSolution> makeDominanceIndex(@NotNull List<FcSolution> solutions) {
+        return new SkylineIndex<>(solutions, s -> {
+            FcScore score = s.getScore();
+            return new int[]{score.getCost(), score.getTime(), score.getSumTimes(), score.getWires()};
+        });
+    }
+
     @Override
     protected boolean alreadyPresent(@NotNull FcSolution candidate, @NotNull FcSolution solution) {
         return candidate.getScore().equals(solution.getScore()) &&
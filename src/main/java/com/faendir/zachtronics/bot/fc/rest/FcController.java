@@ -26,14 +26,19 @@ import com.faendir.zachtronics.bot.fc.rest.dto.FcGroupDTO;
 import com.faendir.zachtronics.bot.fc.rest.dto.FcPuzzleDTO;
 import com.faendir.zachtronics.bot.fc.rest.dto.FcRecordDTO;
 import com.faendir.zachtronics.bot.repository.CategoryRecord;
+import com.faendir.zachtronics.bot.rest.ArchiveExport;
 import com.faendir.zachtronics.bot.rest.GameRestController;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Arrays;
 import java.util.EnumSet;
@@ -45,6 +50,7 @@ import java.util.List;
 public class FcController implements GameRestController<FcGroupDTO, FcPuzzleDTO, FcCategoryDTO, FcRecordDTO> {
     
     private final FcSolutionRepository repository;
+    private final ObjectMapper objectMapper;
     
     @Getter
     private final List<FcGroupDTO> groups = Arrays.stream(FcGroup.values()).map(FcGroupDTO::fromGroup).toList();
@@ -92,6 +98,14 @@ public class FcController implements GameRestController<FcGroupDTO, FcPuzzleDTO,
             return null;
     }
 
+    @Override
+    public ResponseEntity<StreamingResponseBody> export(String commit, @NotNull ArchiveExport.Format format,
+                                                        @NotNull ServletWebRequest request) {
+        return ArchiveExport.respond("fc", commit, format, request, objectMapper, repository::exportCommit,
+                                     (hash, sink) -> repository.export(hash, Arrays.asList(FcPuzzle.values()), sink),
+                                     FcPuzzle::name, FcRecordDTO::fromCategoryRecord);
+    }
+
     private static FcPuzzle findPuzzle(String puzzleId) {
         return Arrays.stream(FcPuzzle.values())
                      .filter(p -> p.name().equalsIgnoreCase(puzzleId))
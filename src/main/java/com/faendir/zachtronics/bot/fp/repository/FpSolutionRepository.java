@@ -20,10 +20,11 @@ import com.faendir.zachtronics.bot.fp.model.*;
 import com.faendir.zachtronics.bot.git.GitRepository;
 import com.faendir.zachtronics.bot.model.DisplayContext;
 import com.faendir.zachtronics.bot.reddit.RedditService;
+import com.faendir.zachtronics.bot.reddit.RedditWikiWriter;
 import com.faendir.zachtronics.bot.reddit.Subreddit;
 import com.faendir.zachtronics.bot.repository.AbstractSolutionRepository;
-import com.faendir.zachtronics.bot.repository.SubmitResult;
-import com.faendir.zachtronics.bot.validation.ValidationResult;
+import com.faendir.zachtronics.bot.repository.DominanceIndex;
+import com.faendir.zachtronics.bot.repository.SkylineIndex;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -33,8 +34,6 @@ import org.springframework.stereotype.Component;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.function.Function;
@@ -47,6 +46,7 @@ import static com.faendir.zachtronics.bot.fp.model.FpCategory.*;
 public class FpSolutionRepository extends AbstractSolutionRepository<FpCategory, FpPuzzle, FpScore, FpSubmission, FpRecord, FpSolution> {
     private final FpCategory[][] wikiCategories = {{RCF, RFC}, {CRF, CFR}, {FRC, FCR}, {wRCF, wFRC}};
     private final RedditService redditService;
+    private final RedditWikiWriter wikiWriter;
     private final Subreddit subreddit = Subreddit.LASTCALLBBS;
     private final String wikiPageName = "forbidden-path";
 
@@ -56,28 +56,6 @@ public class FpSolutionRepository extends AbstractSolutionRepository<FpCategory,
     private final Function<String[], FpSolution> solUnmarshaller = FpSolution::unmarshal;
     private final Comparator<FpSolution> archiveComparator = Comparator.comparing(FpSolution::getScore, RCF.getScoreComparator());
 
-    @NotNull
-    @Override
-    public List<SubmitResult<FpRecord, FpCategory>> submitAll(
-            @NotNull Collection<? extends ValidationResult<FpSubmission>> validationResults) {
-        try (GitRepository.ReadWriteAccess access = gitRepo.acquireWriteAccess()) {
-            List<SubmitResult<FpRecord, FpCategory>> submitResults = new ArrayList<>();
-
-            for (ValidationResult<FpSubmission> validationResult : validationResults) {
-                if (validationResult instanceof ValidationResult.Valid<FpSubmission>) {
-                    FpSubmission submission = validationResult.getSubmission();
-                    submitResults.add(submitOne(access, submission, (sub, wonCategories) -> {}));
-                }
-                else {
-                    submitResults.add(new SubmitResult.Failure<>(validationResult.getMessage()));
-                }
-            }
-
-            access.push();
-            return submitResults;
-        }
-    }
-
     @Override
     protected FpSolution makeCandidateSolution(@NotNull FpSubmission submission) {
         return new FpSolution(submission.getScore(), submission.getAuthor(), submission.getDisplayLink());
@@ -105,6 +83,16 @@ public class FpSolutionRepository extends AbstractSolutionRepository<FpCategory,
         }
     }
 
+    /** waste has no direction, so it partitions the index instead of being a coordinate */
+    @NotNull
+    @Override
+    protected DominanceIndex<FpSolution> makeDominanceIndex(@NotNull List<FpSolution> solutions) {
+        return new SkylineIndex<>(solutions, s -> s.getScore().getWaste(), s -> {
+            FpScore score = s.getScore();
+            return new int[]{score.getRules(), score.getConditionalRules(), score.getFrames()};
+        });
+    }
+
     @Override
     protected boolean alreadyPresent(@NotNull FpSolution candidate, @NotNull FpSolution solution) {
         return candidate.getScore().equals(solution.getScore()) &&
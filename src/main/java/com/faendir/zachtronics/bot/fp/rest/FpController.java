@@ -26,14 +26,19 @@ import com.faendir.zachtronics.bot.fp.rest.dto.FpGroupDTO;
 import com.faendir.zachtronics.bot.fp.rest.dto.FpPuzzleDTO;
 import com.faendir.zachtronics.bot.fp.rest.dto.FpRecordDTO;
 import com.faendir.zachtronics.bot.repository.CategoryRecord;
+import com.faendir.zachtronics.bot.rest.ArchiveExport;
 import com.faendir.zachtronics.bot.rest.GameRestController;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Arrays;
 import java.util.EnumSet;
@@ -45,6 +50,7 @@ import java.util.List;
 public class FpController implements GameRestController<FpGroupDTO, FpPuzzleDTO, FpCategoryDTO, FpRecordDTO> {
     
     private final FpSolutionRepository repository;
+    private final ObjectMapper objectMapper;
     
     @Getter
     private final List<FpGroupDTO> groups = Arrays.stream(FpGroup.values()).map(FpGroupDTO::fromGroup).toList();
@@ -92,6 +98,14 @@ public class FpController implements GameRestController<FpGroupDTO, FpPuzzleDTO,
             return null;
     }
 
+    @Override
+    public ResponseEntity<StreamingResponseBody> export(String commit, @NotNull ArchiveExport.Format format,
+                                                        @NotNull ServletWebRequest request) {
+        return ArchiveExport.respond("fp", commit, format, request, objectMapper, repository::exportCommit,
+                                     (hash, sink) -> repository.export(hash, Arrays.asList(FpPuzzle.values()), sink),
+                                     FpPuzzle::name, FpRecordDTO::fromCategoryRecord);
+    }
+
     private static FpPuzzle findPuzzle(String puzzleId) {
         return Arrays.stream(FpPuzzle.values())
                      .filter(p -> p.name().equalsIgnoreCase(puzzleId))
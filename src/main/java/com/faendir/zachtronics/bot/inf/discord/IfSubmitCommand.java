@@ -16,7 +16,7 @@
 
 package com.faendir.zachtronics.bot.inf.discord;
 
-import com.faendir.zachtronics.bot.discord.command.AbstractSubmitCommand;
+import com.faendir.zachtronics.bot.discord.command.AbstractMultiSubmitCommand;
 import com.faendir.zachtronics.bot.discord.command.option.CommandOption;
 import com.faendir.zachtronics.bot.discord.command.option.CommandOptionBuilder;
 import com.faendir.zachtronics.bot.discord.command.option.OptionHelpersKt;
@@ -24,32 +24,43 @@ import com.faendir.zachtronics.bot.discord.command.security.Secured;
 import com.faendir.zachtronics.bot.inf.IfQualifier;
 import com.faendir.zachtronics.bot.inf.model.*;
 import com.faendir.zachtronics.bot.inf.repository.IfSolutionRepository;
+import com.faendir.zachtronics.bot.validation.ValidationException;
+import com.faendir.zachtronics.bot.validation.ValidationResult;
 import discord4j.core.event.domain.interaction.ChatInputInteractionEvent;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 @RequiredArgsConstructor
 @Component
 @IfQualifier
-public class IfSubmitCommand extends AbstractSubmitCommand<IfCategory, IfPuzzle, IfSubmission, IfRecord> {
-    private final CommandOption<String, String> solutionOption = OptionHelpersKt.linkOptionBuilder("solution")
-            .description("Link or `m1` to scrape it from your last message.")
+public class IfSubmitCommand extends AbstractMultiSubmitCommand<IfCategory, IfPuzzle, IfSubmission, IfRecord> {
+    private static final String SEPARATOR = ",";
+    private final CommandOption<String, List<String>> solutionOption = CommandOptionBuilder.string("solution")
+            .description("Link(s) or `m1` to scrape it from your last message, accepts multiple separated by `,`")
             .required()
+            .convert((event, links) -> Arrays.stream(links.split(SEPARATOR))
+                                             .map(link -> OptionHelpersKt.resolveLink(event, link.trim()))
+                                             .toList())
             .build();
-    private final CommandOption<String, IfScore> scoreOption = CommandOptionBuilder.string("score")
-            .description("Score of the solution in ccc/fff/bbb[/GF] format")
+    /** unparseable scores are kept as {@code null}, so they fail only their own solution */
+    private final CommandOption<String, List<IfScore>> scoreOption = CommandOptionBuilder.string("score")
+            .description("Score(s) of the solution(s) in ccc/fff/bbb[/GF] format, one per solution separated by `,`")
             .required()
-            .convert((event, score) -> IfScore.parseScore(score))
+            .convert((event, scores) -> Arrays.stream(scores.split(SEPARATOR))
+                                              .map(score -> IfScore.parseScore(score.trim()))
+                                              .toList())
             .build();
     private final CommandOption<String, String> authorOption = CommandOptionBuilder.string("author")
             .description("Name to appear on the Reddit leaderboard")
             .required()
             .build();
-    private static final String SEPARATOR = ",";
     private final CommandOption<String, List<String>> videosOption = OptionHelpersKt.linkOptionBuilder("videos")
             .description("Link(s) to the video(s) of the solution, accepts multiple separated by `,`")
             .convert((event, links) -> List.of(links.split(SEPARATOR)))
@@ -63,7 +74,30 @@ public class IfSubmitCommand extends AbstractSubmitCommand<IfCategory, IfPuzzle,
 
     @NotNull
     @Override
-    public IfSubmission parseSubmission(@NotNull ChatInputInteractionEvent event) {
-        return IfSubmission.fromLink(solutionOption.get(event), authorOption.get(event), scoreOption.get(event), videosOption.get(event));
+    public Collection<ValidationResult<IfSubmission>> parseSubmissions(@NotNull ChatInputInteractionEvent event) {
+        List<String> solutions = solutionOption.get(event);
+        List<IfScore> scores = scoreOption.get(event);
+        String author = authorOption.get(event);
+        List<String> videos = videosOption.get(event);
+        if (solutions.size() != scores.size())
+            throw new IllegalArgumentException("Got " + solutions.size() + " solutions but " + scores.size() + " scores");
+        if (videos != null && solutions.size() != 1)
+            throw new IllegalArgumentException("Only one solution can be paired with videos");
+
+        List<ValidationResult<IfSubmission>> results = new ArrayList<>();
+        for (int i = 0; i < solutions.size(); i++) {
+            IfScore score = scores.get(i);
+            if (score == null) {
+                results.add(new ValidationResult.Unparseable<>("Could not parse score #" + (i + 1)));
+                continue;
+            }
+            try {
+                results.add(new ValidationResult.Valid<>(IfSubmission.fromLink(solutions.get(i), author, score, videos)));
+            }
+            catch (ValidationException | IllegalArgumentException e) {
+                results.add(new ValidationResult.Unparseable<>(e.getMessage()));
+            }
+        }
+        return results;
     }
 }
@@ -20,8 +20,11 @@ import com.faendir.zachtronics.bot.git.GitRepository;
 import com.faendir.zachtronics.bot.inf.model.*;
 import com.faendir.zachtronics.bot.model.DisplayContext;
 import com.faendir.zachtronics.bot.reddit.RedditService;
+import com.faendir.zachtronics.bot.reddit.RedditWikiWriter;
 import com.faendir.zachtronics.bot.reddit.Subreddit;
 import com.faendir.zachtronics.bot.repository.AbstractSolutionRepository;
+import com.faendir.zachtronics.bot.repository.DominanceIndex;
+import com.faendir.zachtronics.bot.repository.SkylineIndex;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -32,6 +35,7 @@ import org.springframework.stereotype.Component;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Comparator;
+import java.util.List;
 import java.util.function.Function;
 
 import static com.faendir.zachtronics.bot.inf.model.IfCategory.*;
@@ -45,6 +49,7 @@ public class IfSolutionRepository extends AbstractSolutionRepository<IfCategory,
                                                    {FC, FB},
                                                    {BC, BF, BIC, BIF}};
     private final RedditService redditService;
+    private final RedditWikiWriter wikiWriter;
     private final Subreddit subreddit = Subreddit.INFINIFACTORY;
     private final String wikiPageName = "index";
 
@@ -81,6 +86,15 @@ public class IfSolutionRepository extends AbstractSolutionRepository<IfCategory,
         }
     }
 
+    @NotNull
+    @Override
+    protected DominanceIndex<IfSolution> makeDominanceIndex(@NotNull List<IfSolution> solutions) {
+        return new SkylineIndex<>(solutions, s -> {
+            IfScore score = s.getScore();
+            return new int[]{score.getCycles(), score.getFootprint(), score.getBlocks(), score.usesGRA() ? 1 : 0, score.isFinite() ? 1 : 0};
+        });
+    }
+
     @Override
     protected boolean alreadyPresent(@NotNull IfSolution candidate, @NotNull IfSolution solution) {
         return candidate.getScore().equals(solution.getScore()) &&
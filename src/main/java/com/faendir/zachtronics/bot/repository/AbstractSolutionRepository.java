@@ -20,34 +20,41 @@ import com.faendir.zachtronics.bot.git.GitRepository;
 import com.faendir.zachtronics.bot.model.Record;
 import com.faendir.zachtronics.bot.model.*;
 import com.faendir.zachtronics.bot.reddit.RedditService;
+import com.faendir.zachtronics.bot.reddit.RedditWikiWriter;
 import com.faendir.zachtronics.bot.reddit.Subreddit;
 import com.faendir.zachtronics.bot.utils.Markdown;
-import com.opencsv.*;
-import com.opencsv.enums.CSVReaderNullFieldIndicator;
+import com.faendir.zachtronics.bot.validation.ValidationResult;
+import kotlin.Unit;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.IOException;
-import java.io.UncheckedIOException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
+import java.util.function.UnaryOperator;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
+@Slf4j
 public abstract class AbstractSolutionRepository<C extends Enum<C> & CategoryJava<C, S, ?>, P extends Puzzle<C>, S extends Score<C>,
                                                  Sub extends Submission<C, P>, R extends Record<C>, Sol extends Solution<C, P, S, R>>
         implements SolutionRepository<C, P, Sub, R> {
 
     protected abstract RedditService getRedditService();
+    protected abstract RedditWikiWriter getWikiWriter();
     protected abstract Subreddit getSubreddit();
     protected abstract String getWikiPageName();
     /** For each column, every category in order of appearance */
@@ -56,25 +63,25 @@ public abstract class AbstractSolutionRepository<C extends Enum<C> & CategoryJav
     protected abstract GitRepository getGitRepo();
     protected abstract Class<C> getCategoryClass();
     protected abstract Function<String[], Sol> getSolUnmarshaller();
+
+    private final SolutionCache<PuzzleIndex> solutionCache = new SolutionCache<>();
+    private static final int PUSH_ATTEMPTS = 3;
     /** Sorting order of the solutions index */
     protected abstract Comparator<Sol> getArchiveComparator();
 
     @NotNull
     @Override
     public List<CategoryRecord<R, C>> findCategoryHolders(@NotNull P puzzle, boolean includeFrontier) {
-        try (GitRepository.ReadAccess access = getGitRepo().acquireReadAccess()) {
-            Path puzzlePath = getPuzzlePath(access, puzzle);
-
-            List<Sol> solutions = unmarshalSolutions(puzzlePath);
+        try (GitRepository.Snapshot snapshot = getGitRepo().snapshot()) {
+            Path puzzlePath = snapshot.getRepo().toPath().resolve(relativePuzzlePath(puzzle));
+            List<CategoryRecord<R, C>> categoryRecords = cachedIndex(snapshot, puzzle, puzzlePath).categoryRecords;
+            if (includeFrontier)
+                return new ArrayList<>(categoryRecords);
 
             List<CategoryRecord<R, C>> result = new ArrayList<>();
-            for (Sol sol : solutions) {
-                if (includeFrontier || !sol.getCategories().isEmpty()) {
-                    CategoryRecord<R, C> categoryRecord = sol.extendToCategoryRecord(puzzle,
-                                                                                     makeArchiveLink(puzzle, sol.getScore()),
-                                                                                     makeArchivePath(puzzlePath, sol.getScore()));
+            for (CategoryRecord<R, C> categoryRecord : categoryRecords) {
+                if (!categoryRecord.getCategories().isEmpty())
                     result.add(categoryRecord);
-                }
             }
             return result;
         } catch (IOException e) {
@@ -82,11 +89,148 @@ public abstract class AbstractSolutionRepository<C extends Enum<C> & CategoryJav
         }
     }
 
+    @Nullable
+    @Override
+    public R find(@NotNull P puzzle, @NotNull C category) {
+        try (GitRepository.Snapshot snapshot = getGitRepo().snapshot()) {
+            Path puzzlePath = snapshot.getRepo().toPath().resolve(relativePuzzlePath(puzzle));
+            return cachedIndex(snapshot, puzzle, puzzlePath).holders.get(category);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param commit a full commit hash, {@code null} for the current head
+     * @return the commit {@link #export} reads
+     * @throws IllegalArgumentException if the commit is not in the repository
+     */
+    @NotNull
+    public String exportCommit(@Nullable String commit) {
+        try (GitRepository.Snapshot snapshot = commit == null ? getGitRepo().snapshot() : getGitRepo().snapshot(commit)) {
+            return snapshot.currentHash();
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("Unknown commit " + commit, e);
+        }
+    }
+
+    /**
+     * Hands every solution of the puzzles, frontier included, to the sink as of the commit.
+     * Only the object database is read, one puzzle index at a time, so writers are never blocked by a slow sink.
+     *
+     * @param commit as returned by {@link #exportCommit}
+     */
+    public void export(@NotNull String commit, @NotNull Collection<P> puzzles, @NotNull ArchiveSink<P, R, C> sink)
+            throws IOException {
+        try (GitRepository.Snapshot snapshot = getGitRepo().snapshot(commit)) {
+            Path repoPath = snapshot.getRepo().toPath();
+            for (P puzzle : puzzles) {
+                Path puzzlePath = repoPath.resolve(relativePuzzlePath(puzzle));
+                // a pinned commit may be older than the cache, which only moves forward
+                for (Sol solution : unmarshalSolutions(snapshot, puzzlePath)) {
+                    Path dataPath = makeArchivePath(puzzlePath, solution.getScore());
+                    CategoryRecord<R, C> categoryRecord =
+                            solution.extendToCategoryRecord(puzzle, makeArchiveLink(puzzle, solution.getScore()), dataPath);
+                    String dataFile = repoPath.relativize(dataPath).toString().replace(File.separatorChar, '/');
+                    sink.accept(puzzle, categoryRecord, dataFile, snapshot.open(dataPath.toFile()));
+                }
+            }
+        }
+    }
+
     @NotNull
     @Override
     public SubmitResult<R, C> submit(@NotNull Sub submission) {
+        try (GitRepository.ReadWriteAccess access = acquireWriteAccess(submission.getPuzzle())) {
+            return submitOne(access, submission, (s, c) -> pushInBackground(access));
+        }
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<SubmitResult<R, C>> submitAsync(@NotNull Sub submission) {
+        return getGitRepo().enqueueWrite(() -> submit(submission));
+    }
+
+    /** One write access, one commit and one push for the whole batch */
+    @NotNull
+    @Override
+    public List<SubmitResult<R, C>> submitAll(@NotNull Collection<? extends ValidationResult<Sub>> validationResults) {
         try (GitRepository.ReadWriteAccess access = getGitRepo().acquireWriteAccess()) {
-            return submitOne(access, submission, (s, c) -> access.push());
+            List<SubmitResult<R, C>> submitResults = submitBatch(access, validationResults, (sub, wonCategories) -> {});
+
+            pushInBackground(access);
+            return submitResults;
+        }
+    }
+
+    /**
+     * Submitters don't wait for the push, it is batched with later commits.
+     * A failed one is retried a few times, then the commits wait for the next push.
+     */
+    protected void pushInBackground(@NotNull GitRepository.ReadWriteAccess access) {
+        watchPush(access.push(), PUSH_ATTEMPTS);
+    }
+
+    private void watchPush(@NotNull CompletableFuture<Unit> push, int attemptsLeft) {
+        push.whenComplete((unit, e) -> {
+            if (e == null)
+                return;
+            if (attemptsLeft > 1) {
+                log.warn("push to {} failed, retrying", getGitRepo().getName(), e);
+                watchPush(getGitRepo().requestPush(), attemptsLeft - 1);
+            }
+            else {
+                log.error("giving up on pushing to {}, the commits stay local until the next push", getGitRepo().getName(), e);
+            }
+        });
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<List<SubmitResult<R, C>>> submitAllAsync(
+            @NotNull Collection<? extends ValidationResult<Sub>> validationResults) {
+        return getGitRepo().enqueueWrite(() -> submitAll(validationResults));
+    }
+
+    /**
+     * What {@link #submit} would answer right now, decided on the cached solutions: no lock, nothing written.
+     * Those are shared with readers, the ones whose categories change are copied first.
+     * A success carries no message, as there is no commit to link.
+     */
+    @NotNull
+    @Override
+    public SubmitResult<R, C> submitDryRun(@NotNull Sub submission) {
+        P puzzle = submission.getPuzzle();
+        try (GitRepository.Snapshot snapshot = getGitRepo().snapshot()) {
+            Path puzzlePath = snapshot.getRepo().toPath().resolve(relativePuzzlePath(puzzle));
+            List<Sol> cached = cachedIndex(snapshot, puzzle, puzzlePath).solutions;
+            List<Sol> solutions = new ArrayList<>(cached);
+            DominanceIndex<Sol> dominanceIndex = makeDominanceIndex(solutions);
+            Sol candidate = makeCandidateSolution(submission);
+
+            SubmitResult<R, C> rejection = checkFrontier(puzzle, puzzlePath, solutions, dominanceIndex, candidate);
+            if (rejection != null)
+                return rejection;
+
+            // what writing the data file with CREATE_NEW would find
+            Path dataPath = makeArchivePath(puzzlePath, candidate.getScore());
+            ObjectLoader previousData = snapshot.open(dataPath.toFile());
+            if (previousData != null && !replacesDataFile(puzzlePath, dominanceIndex, candidate, dataPath))
+                return new SubmitResult.Failure<>(new FileAlreadyExistsException(dataPath.toString()).toString());
+
+            Archival archival = stageArchival(puzzle, puzzlePath, solutions, dominanceIndex, candidate, submission,
+                                              this::copySolution);
+            if (previousData != null && Arrays.equals(previousData.getCachedBytes(), dataBytes(archival.data)) &&
+                marshalIndex(cached).equals(marshalIndex(solutions))) {
+                // the same exact sol was already archived,
+                return new SubmitResult.AlreadyPresent<>();
+            }
+            return new SubmitResult.Success<>(null, null, archival.beatenCategoryRecords);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
@@ -97,7 +241,7 @@ public abstract class AbstractSolutionRepository<C extends Enum<C> & CategoryJav
         Path puzzlePath = getPuzzlePath(access, puzzle);
         List<Sol> solutions;
         try {
-            solutions = unmarshalSolutions(puzzlePath);
+            solutions = solutionsForEdit(puzzle, puzzlePath);
         }
         catch (IOException e) {
             throw new UncheckedIOException(e);
@@ -111,11 +255,15 @@ public abstract class AbstractSolutionRepository<C extends Enum<C> & CategoryJav
                                               .findFirst()
                                               .orElseThrow();
             Set<C> wonCategories = submissionSolution.getCategories();
+            PuzzleIndex index = new PuzzleIndex(puzzle, puzzlePath, solutions);
             if (!wonCategories.isEmpty()) {
                 // write the reddit lb, as there are changes to write
                 String updateMessage = puzzle.getDisplayName() + " " + submission.getScore().toDisplayString() +
                                        " by " + submission.getAuthor();
-                writeToRedditLeaderboard(puzzle, puzzlePath, solutions, updateMessage);
+                writeToRedditLeaderboard(puzzle, index, updateMessage);
+            }
+            try (GitRepository.Snapshot snapshot = getGitRepo().snapshot()) {
+                solutionCache.put(snapshot, cacheKey(puzzle), index);
             }
             successCallback.accept(submission, wonCategories);
         }
@@ -123,6 +271,183 @@ public abstract class AbstractSolutionRepository<C extends Enum<C> & CategoryJav
         return submitResult;
     }
 
+    /**
+     * Archives the valid submissions in order, each puzzle index is read and written once and the whole batch is one commit.
+     * Every submission gets the result it would get on its own, and every puzzle with won categories gets one wiki update.
+     * If a puzzle directory can't be written all of its submissions fail, the other puzzles are still committed.
+     *
+     * @param successCallback runs after the commit, for every successful submission with the categories it won
+     */
+    @NotNull
+    protected List<SubmitResult<R, C>> submitBatch(@NotNull GitRepository.ReadWriteAccess access,
+                                                  @NotNull Collection<? extends ValidationResult<Sub>> validationResults,
+                                                  @NotNull BiConsumer<Sub, Collection<C>> successCallback) {
+        List<SubmitResult<R, C>> submitResults = new ArrayList<>();
+        Map<P, PuzzleBatch> batches = new LinkedHashMap<>();
+        for (ValidationResult<Sub> validationResult : validationResults) {
+            if (validationResult instanceof ValidationResult.Valid<Sub>) {
+                Sub submission = validationResult.getSubmission();
+                PuzzleBatch batch = batches.computeIfAbsent(submission.getPuzzle(), p -> new PuzzleBatch(access, p));
+                // successes are filled in after the commit
+                submitResults.add(batch.archive(submission, submitResults.size()));
+            }
+            else {
+                submitResults.add(new SubmitResult.Failure<>(validationResult.getMessage()));
+            }
+        }
+
+        List<PuzzleBatch> written = new ArrayList<>();
+        for (PuzzleBatch batch : batches.values()) {
+            if (batch.accepted.isEmpty())
+                continue;
+            try {
+                batch.write();
+                written.add(batch);
+            }
+            catch (IOException e) {
+                access.resetAndClean(batch.puzzlePath.toFile());
+                for (Accepted accepted : batch.accepted)
+                    submitResults.set(accepted.position, new SubmitResult.Failure<>(e.toString()));
+            }
+        }
+        if (written.isEmpty())
+            return submitResults;
+
+        List<Accepted> allAccepted = written.stream()
+                                            .flatMap(b -> b.accepted.stream())
+                                            .sorted(Comparator.comparingInt(a -> a.position))
+                                            .toList();
+        RevCommit rev = access.serialized(() -> {
+            for (PuzzleBatch batch : written)
+                access.addAll(batch.puzzlePath.toFile());
+            String message = allAccepted.size() == 1
+                             ? commitMessage(allAccepted.get(0).submission)
+                             : allAccepted.stream()
+                                          .map(a -> commitMessage(a.submission))
+                                          .collect(Collectors.joining("\n", "Added " + allAccepted.size() + " solutions\n\n", ""));
+            return access.commit(message);
+        });
+
+        for (Accepted accepted : allAccepted) {
+            Path repoPath = access.getRepo().toPath();
+            String result = Stream.of(accepted.indexPath, accepted.archival.dataPath)
+                                  .map(f -> repoPath.relativize(f).toString().replace(File.separatorChar, '/'))
+                                  .map(this::fileLink)
+                                  .collect(Collectors.joining(", "));
+            result += "\n" + commitLink(rev);
+            submitResults.set(accepted.position, new SubmitResult.Success<>(result, null, accepted.archival.beatenCategoryRecords));
+        }
+        try (GitRepository.Snapshot snapshot = getGitRepo().snapshot()) {
+            for (PuzzleBatch batch : written) {
+                PuzzleIndex index = new PuzzleIndex(batch.puzzle, batch.puzzlePath, batch.solutions);
+                if (!batch.updateMessages.isEmpty()) {
+                    String updateMessage = batch.puzzle.getDisplayName() + " " + String.join(", ", batch.updateMessages);
+                    writeToRedditLeaderboard(batch.puzzle, index, updateMessage);
+                }
+                solutionCache.put(snapshot, cacheKey(batch.puzzle), index);
+            }
+        }
+        for (Accepted accepted : allAccepted)
+            successCallback.accept(accepted.submission, accepted.wonCategories);
+        return submitResults;
+    }
+
+    /** One puzzle directory during a batch, the file changes are kept in memory until {@link #write()} */
+    private final class PuzzleBatch {
+        private final P puzzle;
+        private final Path puzzlePath;
+        private final List<Sol> solutions;
+        private final DominanceIndex<Sol> dominanceIndex;
+        /** applied before {@link #writes} */
+        private final Set<Path> deletions = new HashSet<>();
+        private final Map<Path, Object> writes = new HashMap<>();
+        private final List<Accepted> accepted = new ArrayList<>();
+        private final List<String> updateMessages = new ArrayList<>();
+
+        PuzzleBatch(@NotNull GitRepository.ReadWriteAccess access, @NotNull P puzzle) {
+            this.puzzle = puzzle;
+            this.puzzlePath = getPuzzlePath(access, puzzle);
+            try {
+                this.solutions = solutionsForEdit(puzzle, puzzlePath);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.dominanceIndex = makeDominanceIndex(solutions);
+        }
+
+        /** @return the result, {@code null} if it is accepted and waits for the commit */
+        @Nullable
+        SubmitResult<R, C> archive(@NotNull Sub submission, int position) {
+            Sol candidate = makeCandidateSolution(submission);
+            SubmitResult<R, C> rejection = checkFrontier(puzzle, puzzlePath, solutions, dominanceIndex, candidate);
+            if (rejection != null)
+                return rejection;
+
+            // what writing the data file with CREATE_NEW would find, once the beaten files are gone
+            Path dataPath = makeArchivePath(puzzlePath, candidate.getScore());
+            byte[] previousData = null;
+            try {
+                if (writes.containsKey(dataPath))
+                    previousData = dataBytes(writes.get(dataPath));
+                else if (!deletions.contains(dataPath) && Files.exists(dataPath))
+                    previousData = Files.readAllBytes(dataPath);
+            }
+            catch (IOException e) {
+                return new SubmitResult.Failure<>(e.toString());
+            }
+            if (previousData != null && !replacesDataFile(puzzlePath, dominanceIndex, candidate, dataPath))
+                return new SubmitResult.Failure<>(new FileAlreadyExistsException(dataPath.toString()).toString());
+
+            // the list is edited in place, only a possible rewrite of the same data needs the old index
+            String previousIndex = previousData == null ? null : marshalIndex(solutions);
+            Archival archival = stageArchival(puzzle, puzzlePath, solutions, dominanceIndex, candidate, submission,
+                                              AbstractSolutionRepository.this::copySolution);
+            for (Path path : archival.deletedPaths) {
+                writes.remove(path);
+                deletions.add(path);
+            }
+            writes.put(archival.dataPath, archival.data);
+
+            if (previousData != null && Arrays.equals(previousData, dataBytes(archival.data)) &&
+                previousIndex.equals(marshalIndex(solutions))) {
+                // the same exact sol was already archived,
+                return new SubmitResult.AlreadyPresent<>();
+            }
+
+            Set<C> wonCategories = EnumSet.copyOf(candidate.getCategories());
+            accepted.add(new Accepted(position, submission, puzzlePath.resolve("solutions.psv"), archival, wonCategories));
+            if (!wonCategories.isEmpty())
+                updateMessages.add(submission.getScore().toDisplayString() + " by " + submission.getAuthor());
+            return null;
+        }
+
+        void write() throws IOException {
+            for (Path path : deletions)
+                Files.deleteIfExists(path);
+            for (Map.Entry<Path, Object> write : writes.entrySet())
+                writeData(write.getKey(), write.getValue());
+            marshalSolutions(solutions, puzzlePath);
+        }
+    }
+
+    private final class Accepted {
+        private final int position;
+        private final Sub submission;
+        private final Path indexPath;
+        private final Archival archival;
+        private final Set<C> wonCategories;
+
+        Accepted(int position, @NotNull Sub submission, @NotNull Path indexPath, @NotNull Archival archival,
+                 @NotNull Set<C> wonCategories) {
+            this.position = position;
+            this.submission = submission;
+            this.indexPath = indexPath;
+            this.archival = archival;
+            this.wonCategories = wonCategories;
+        }
+    }
+
     protected abstract Sol makeCandidateSolution(@NotNull Sub submission);
     /**
      * <ul>
@@ -139,90 +464,43 @@ public abstract class AbstractSolutionRepository<C extends Enum<C> & CategoryJav
         it.remove();
     }
 
+    /** override with a {@link SkylineIndex} over the frontier dimensions, the default compares with every solution */
+    @NotNull
+    protected DominanceIndex<Sol> makeDominanceIndex(@NotNull List<Sol> solutions) {
+        return new LinearDominanceIndex<>(solutions, (s1, s2) -> frontierCompare(s1.getScore(), s2.getScore()));
+    }
+
     /**
      * @param solutions the list is modified with the updated state
      */
     protected SubmitResult<R, C> archiveOne(@NotNull GitRepository.ReadWriteAccess access,
                                             @NotNull List<Sol> solutions,
                                             @NotNull Sub submission) {
+        return archiveOne(access, solutions, makeDominanceIndex(solutions), submission);
+    }
+
+    /**
+     * @param solutions the list is modified with the updated state, the solutions in it are copied before they are edited
+     * @param dominanceIndex over {@code solutions}, it is kept in sync with them
+     */
+    protected SubmitResult<R, C> archiveOne(@NotNull GitRepository.ReadWriteAccess access,
+                                            @NotNull List<Sol> solutions,
+                                            @NotNull DominanceIndex<Sol> dominanceIndex,
+                                            @NotNull Sub submission) {
         P puzzle = submission.getPuzzle();
         Path puzzlePath = getPuzzlePath(access, puzzle);
-
-        List<CategoryRecord<R, C>> beatenCategoryRecords = new ArrayList<>();
         Sol candidate = makeCandidateSolution(submission);
 
-        try {
-            for (ListIterator<Sol> it = solutions.listIterator(); it.hasNext(); ) {
-                Sol solution = it.next();
-                int r = frontierCompare(candidate.getScore(), solution.getScore());
-                if (r > 0) {
-                    // TODO actually return all of the beating sols
-                    CategoryRecord<R, C> categoryRecord =
-                            solution.extendToCategoryRecord(puzzle,
-                                                            makeArchiveLink(puzzle, solution.getScore()),
-                                                            makeArchivePath(puzzlePath, solution.getScore()));
-                    return new SubmitResult.NothingBeaten<>(Collections.singletonList(categoryRecord));
-                }
-                else if (r < 0) {
-                    if (alreadyPresent(candidate, solution)) {
-                        // TODO handle SubmitResult.Updated
-                        return new SubmitResult.AlreadyPresent<>();
-                    }
-
-                    // remove beaten score and get categories
-                    candidate.getCategories().addAll(solution.getCategories());
-                    Files.deleteIfExists(makeArchivePath(puzzlePath, solution.getScore()));
-                    beatenCategoryRecords.add(solution.extendToCategoryRecord(puzzle, null, null)); // the beaten record has no data anymore
-                    removeOrReplaceFromIndex(candidate, solution, it);
-                }
-            }
-
-            // the new record may have gained categories of records it didn't pareto-beat, do the transfers
-            // while we're here, keep track of totally missing categories, we'll assign them to the new sol
-            EnumSet<C> missingCategories = EnumSet.copyOf(puzzle.getSupportedCategories());
-            missingCategories.removeAll(candidate.getCategories());
-            for (Sol solution: solutions) {
-                EnumSet<C> lostCategories = EnumSet.noneOf(getCategoryClass());
-                for (C category : solution.getCategories()) {
-                    missingCategories.remove(category);
-                    if (category.supportsScore(candidate.getScore()) &&
-                        category.getScoreComparator().compare(candidate.getScore(), solution.getScore()) < 0) {
-                        lostCategories.add(category);
-                    }
-                }
-                if (!lostCategories.isEmpty()) {
-                    // add a CR holding the lost categories, then correct the solutions
-                    CategoryRecord<R, C> beatenCR = new CategoryRecord<>(
-                            solution.extendToRecord(puzzle,
-                                                    makeArchiveLink(puzzle, solution.getScore()),
-                                                    makeArchivePath(puzzlePath, solution.getScore())),
-                            lostCategories);
-                    beatenCategoryRecords.add(beatenCR);
-
-                    solution.getCategories().removeAll(lostCategories);
-                    candidate.getCategories().addAll(lostCategories);
-                }
-            }
-
-            // add in completely missing categories
-            if (!missingCategories.isEmpty()) {
-                missingCategories.removeIf(c -> !c.supportsScore(candidate.getScore()));
-                beatenCategoryRecords.add(new CategoryRecord<>(null, missingCategories));
-                candidate.getCategories().addAll(missingCategories);
-            }
-
-            int index = Collections.binarySearch(solutions, candidate, getArchiveComparator());
-            if (index < 0) {
-                index = -index - 1;
-            }
-            solutions.add(index, candidate);
-
-            Path solutionPath = makeArchivePath(puzzlePath, candidate.getScore());
-            if (submission.getData() instanceof String data)
-                Files.writeString(solutionPath, data, StandardOpenOption.CREATE_NEW);
-            else
-                Files.write(solutionPath, (byte[]) submission.getData(), StandardOpenOption.CREATE_NEW);
+        SubmitResult<R, C> rejection = checkFrontier(puzzle, puzzlePath, solutions, dominanceIndex, candidate);
+        if (rejection != null)
+            return rejection;
+        Archival archival = stageArchival(puzzle, puzzlePath, solutions, dominanceIndex, candidate, submission,
+                                          this::copySolution);
 
+        try {
+            for (Path path : archival.deletedPaths)
+                Files.deleteIfExists(path);
+            writeData(archival.dataPath, archival.data);
             marshalSolutions(solutions, puzzlePath);
         }
         catch (IOException e) {
@@ -231,29 +509,201 @@ public abstract class AbstractSolutionRepository<C extends Enum<C> & CategoryJav
             return new SubmitResult.Failure<>(e.toString());
         }
 
-        if (access.status().isClean()) {
+        if (access.status(puzzlePath.toFile()).isClean()) {
             // the same exact sol was already archived,
             return new SubmitResult.AlreadyPresent<>();
         }
 
         String result = commit(access, submission, puzzlePath);
-        return new SubmitResult.Success<>(result, null, beatenCategoryRecords);
+        return new SubmitResult.Success<>(result, null, archival.beatenCategoryRecords);
+    }
+
+    /** @return why the candidate stays out of the frontier, {@code null} if it gets in */
+    @Nullable
+    private SubmitResult<R, C> checkFrontier(@NotNull P puzzle, @NotNull Path puzzlePath, @NotNull List<Sol> solutions,
+                                             @NotNull DominanceIndex<Sol> dominanceIndex, @NotNull Sol candidate) {
+        // a better solution and an equal one can only coexist next to video-only entries, the index order decides
+        int dominatingPosition = Integer.MAX_VALUE;
+        for (Sol solution : dominanceIndex.findDominating(candidate)) {
+            dominatingPosition = Math.min(dominatingPosition, positionOf(solutions, solution));
+        }
+        int presentPosition = Integer.MAX_VALUE;
+        for (Sol solution : dominanceIndex.findDominated(candidate)) {
+            if (alreadyPresent(candidate, solution))
+                presentPosition = Math.min(presentPosition, positionOf(solutions, solution));
+        }
+        if (dominatingPosition < presentPosition) {
+            // TODO actually return all of the beating sols
+            Sol solution = solutions.get(dominatingPosition);
+            CategoryRecord<R, C> categoryRecord =
+                    solution.extendToCategoryRecord(puzzle,
+                                                    makeArchiveLink(puzzle, solution.getScore()),
+                                                    makeArchivePath(puzzlePath, solution.getScore()));
+            return new SubmitResult.NothingBeaten<>(Collections.singletonList(categoryRecord));
+        }
+        else if (presentPosition != Integer.MAX_VALUE) {
+            // TODO handle SubmitResult.Updated
+            return new SubmitResult.AlreadyPresent<>();
+        }
+        return null;
+    }
+
+    /** whether the candidate takes the data file of a solution it beats, rather than colliding with a file it can't replace */
+    private boolean replacesDataFile(@NotNull Path puzzlePath, @NotNull DominanceIndex<Sol> dominanceIndex,
+                                     @NotNull Sol candidate, @NotNull Path dataPath) {
+        return dominanceIndex.findDominated(candidate)
+                             .stream()
+                             .anyMatch(s -> makeArchivePath(puzzlePath, s.getScore()).equals(dataPath));
+    }
+
+    /** a solution of its own, with categories that can be edited */
+    @NotNull
+    private Sol copySolution(@NotNull Sol solution) {
+        return getSolUnmarshaller().apply(solution.marshal());
+    }
+
+    /**
+     * Puts the candidate in the solutions and moves the categories it won, the files are left to the caller.
+     *
+     * @param ownForEdit gives the solution whose categories are about to be taken, it replaces the given one in the solutions
+     */
+    @NotNull
+    private Archival stageArchival(@NotNull P puzzle, @NotNull Path puzzlePath, @NotNull List<Sol> solutions,
+                                   @NotNull DominanceIndex<Sol> dominanceIndex, @NotNull Sol candidate, @NotNull Sub submission,
+                                   @NotNull UnaryOperator<Sol> ownForEdit) {
+        Archival archival = new Archival(makeArchivePath(puzzlePath, candidate.getScore()), submission.getData());
+        List<CategoryRecord<R, C>> beatenCategoryRecords = archival.beatenCategoryRecords;
+
+        Set<Sol> beaten = Collections.newSetFromMap(new IdentityHashMap<>());
+        beaten.addAll(dominanceIndex.findDominated(candidate));
+        for (ListIterator<Sol> it = solutions.listIterator(); !beaten.isEmpty() && it.hasNext(); ) {
+            Sol solution = it.next();
+            if (!beaten.remove(solution))
+                continue;
+
+            // remove beaten score and get categories
+            candidate.getCategories().addAll(solution.getCategories());
+            archival.deletedPaths.add(makeArchivePath(puzzlePath, solution.getScore()));
+            beatenCategoryRecords.add(solution.extendToCategoryRecord(puzzle, null, null)); // the beaten record has no data anymore
+            int size = solutions.size();
+            removeOrReplaceFromIndex(candidate, solution, it);
+            dominanceIndex.remove(solution);
+            if (solutions.size() == size)
+                dominanceIndex.add(solutions.get(it.previousIndex()));
+        }
+
+        // the new record may have gained categories of records it didn't pareto-beat, do the transfers
+        // while we're here, keep track of totally missing categories, we'll assign them to the new sol
+        EnumSet<C> missingCategories = EnumSet.copyOf(puzzle.getSupportedCategories());
+        missingCategories.removeAll(candidate.getCategories());
+        for (ListIterator<Sol> it = solutions.listIterator(); it.hasNext(); ) {
+            Sol solution = it.next();
+            EnumSet<C> lostCategories = EnumSet.noneOf(getCategoryClass());
+            for (C category : solution.getCategories()) {
+                missingCategories.remove(category);
+                if (category.supportsScore(candidate.getScore()) &&
+                    category.getScoreComparator().compare(candidate.getScore(), solution.getScore()) < 0) {
+                    lostCategories.add(category);
+                }
+            }
+            if (!lostCategories.isEmpty()) {
+                // add a CR holding the lost categories, then correct the solutions
+                CategoryRecord<R, C> beatenCR = new CategoryRecord<>(
+                        solution.extendToRecord(puzzle,
+                                                makeArchiveLink(puzzle, solution.getScore()),
+                                                makeArchivePath(puzzlePath, solution.getScore())),
+                        lostCategories);
+                beatenCategoryRecords.add(beatenCR);
+
+                Sol owned = ownForEdit.apply(solution);
+                if (owned != solution) {
+                    it.set(owned);
+                    dominanceIndex.remove(solution);
+                    dominanceIndex.add(owned);
+                }
+                owned.getCategories().removeAll(lostCategories);
+                candidate.getCategories().addAll(lostCategories);
+            }
+        }
+
+        // add in completely missing categories
+        if (!missingCategories.isEmpty()) {
+            missingCategories.removeIf(c -> !c.supportsScore(candidate.getScore()));
+            beatenCategoryRecords.add(new CategoryRecord<>(null, missingCategories));
+            candidate.getCategories().addAll(missingCategories);
+        }
+
+        int index = Collections.binarySearch(solutions, candidate, getArchiveComparator());
+        if (index < 0) {
+            index = -index - 1;
+        }
+        solutions.add(index, candidate);
+        dominanceIndex.add(candidate);
+        return archival;
+    }
+
+    private static void writeData(@NotNull Path path, @NotNull Object data) throws IOException {
+        Files.write(path, dataBytes(data), StandardOpenOption.CREATE_NEW);
+    }
+
+    private static byte[] dataBytes(@NotNull Object data) {
+        return data instanceof String string ? string.getBytes(StandardCharsets.UTF_8) : (byte[]) data;
+    }
+
+    /** the outcome of moving a submission into the solutions, and the files that go with it */
+    private final class Archival {
+        private final List<CategoryRecord<R, C>> beatenCategoryRecords = new ArrayList<>();
+        private final List<Path> deletedPaths = new ArrayList<>();
+        private final Path dataPath;
+        private final Object data;
+
+        Archival(@NotNull Path dataPath, @NotNull Object data) {
+            this.dataPath = dataPath;
+            this.data = data;
+        }
+    }
+
+    private static <T> int positionOf(@NotNull List<T> list, @NotNull T element) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == element)
+                return i;
+        }
+        throw new IllegalStateException("The dominance index is out of sync with the solutions");
     }
 
     @NotNull
     protected String commit(@NotNull GitRepository.ReadWriteAccess access, @NotNull Sub submission, @NotNull Path puzzlePath) {
-        access.addAll(puzzlePath.toFile());
-        String result = Stream.concat(access.status().getChanged().stream(),
-                                      access.status().getAdded().stream())
-                              .map(f -> "[" + f.replaceFirst(".+/", "") + "]" +
-                                        "(" + getGitRepo().getRawFilesUrl() + "/" + f + ")")
-                              .collect(Collectors.joining(", "));
-        RevCommit rev = access.commit("Added " + submission.getScore().toDisplayString() +
-                                      " for " + submission.getPuzzle().getDisplayName() +
-                                      " by " + submission.getAuthor());
-        result += "\n[commit " + rev.name().substring(0, 7) + "]" +
-                  "(" + getGitRepo().getUrl().replaceFirst(".git$", "") + "/commit/" + rev.name() + ")";
-        return result;
+        // the index is shared, no other puzzle may stage between our add and commit
+        return access.serialized(() -> {
+            access.addAll(puzzlePath.toFile());
+            Status status = access.status(puzzlePath.toFile());
+            String result = Stream.concat(status.getChanged().stream(),
+                                          status.getAdded().stream())
+                                  .map(this::fileLink)
+                                  .collect(Collectors.joining(", "));
+            RevCommit rev = access.commit(commitMessage(submission));
+            result += "\n" + commitLink(rev);
+            return result;
+        });
+    }
+
+    @NotNull
+    private String commitMessage(@NotNull Sub submission) {
+        return "Added " + submission.getScore().toDisplayString() +
+               " for " + submission.getPuzzle().getDisplayName() +
+               " by " + submission.getAuthor();
+    }
+
+    /** @param file relative to the repository, with forward slashes */
+    @NotNull
+    private String fileLink(@NotNull String file) {
+        return "[" + file.replaceFirst(".+/", "") + "]" + "(" + getGitRepo().getRawFilesUrl() + "/" + file + ")";
+    }
+
+    @NotNull
+    private String commitLink(@NotNull RevCommit rev) {
+        return "[commit " + rev.name().substring(0, 7) + "]" +
+               "(" + getGitRepo().getUrl().replaceFirst(".git$", "") + "/commit/" + rev.name() + ")";
     }
 
     /**
@@ -261,13 +711,8 @@ public abstract class AbstractSolutionRepository<C extends Enum<C> & CategoryJav
      */
     public List<Sol> unmarshalSolutions(@NotNull Path puzzlePath) throws IOException {
         Path indexPath = puzzlePath.resolve("solutions.psv");
-        try (BufferedReader reader = Files.newBufferedReader(indexPath)) {
-
-            CSVParser parser = new CSVParserBuilder().withSeparator('|').withFieldAsNull(CSVReaderNullFieldIndicator.BOTH).build();
-            CSVReader csvReader = new CSVReaderBuilder(reader).withCSVParser(parser).build();
-            return StreamSupport.stream(csvReader.spliterator(), false)
-                                .map(getSolUnmarshaller())
-                                .collect(Collectors.toList());
+        try {
+            return PsvCodec.read(Files.readString(indexPath), getSolUnmarshaller());
         }
         catch (NoSuchFileException e) {
             Files.createDirectories(puzzlePath);
@@ -276,60 +721,111 @@ public abstract class AbstractSolutionRepository<C extends Enum<C> & CategoryJav
         }
     }
 
-    public void marshalSolutions(@NotNull List<Sol> solutions, @NotNull Path puzzlePath) throws IOException {
-        try (BufferedWriter writer = Files.newBufferedWriter(puzzlePath.resolve("solutions.psv"),
-                                                             StandardOpenOption.TRUNCATE_EXISTING)) {
-            ICSVWriter csvWriter = new CSVWriterBuilder(writer).withSeparator('|').build();
-            csvWriter.writeAll(solutions.stream().map(Sol::marshal)::iterator, false);
+    /**
+     * The cached solutions in a list of their own, they are shared with readers and have to be copied before an edit.
+     * The caller writes to the puzzle, so its index in the working tree is the one of HEAD.
+     * A missing index is created empty, for the write that follows.
+     */
+    @NotNull
+    private List<Sol> solutionsForEdit(@NotNull P puzzle, @NotNull Path puzzlePath) throws IOException {
+        Path indexPath = puzzlePath.resolve("solutions.psv");
+        if (Files.notExists(indexPath)) {
+            Files.createDirectories(puzzlePath);
+            Files.createFile(indexPath);
+        }
+        try (GitRepository.Snapshot snapshot = getGitRepo().snapshot()) {
+            return new ArrayList<>(cachedIndex(snapshot, puzzle, puzzlePath).solutions);
         }
     }
 
-    public void rebuildRedditLeaderboard(P puzzle, String updateMessage) {
-        try (GitRepository.ReadWriteAccess access = getGitRepo().acquireWriteAccess()) {
-            Path puzzlePath = getPuzzlePath(access, puzzle);
-            List<Sol> solutions = unmarshalSolutions(puzzlePath);
-            writeToRedditLeaderboard(puzzle, puzzlePath, solutions, updateMessage);
+    /** parsed at most once per puzzle and commit that changed it */
+    @NotNull
+    private PuzzleIndex cachedIndex(@NotNull GitRepository.Snapshot snapshot, @NotNull P puzzle, @NotNull Path puzzlePath)
+            throws IOException {
+        return solutionCache.get(snapshot, cacheKey(puzzle),
+                                 () -> new PuzzleIndex(puzzle, puzzlePath, unmarshalSolutions(snapshot, puzzlePath)));
+    }
+
+    /**
+     * The solutions of a puzzle with their records and the record of each category they hold, nothing changes once built.
+     * Archive links and paths are only formatted here, once per solution and commit.
+     */
+    protected final class PuzzleIndex {
+        private final List<Sol> solutions;
+        /** one per solution, in the same order */
+        private final List<CategoryRecord<R, C>> categoryRecords;
+        private final Map<C, R> holders;
+
+        PuzzleIndex(@NotNull P puzzle, @NotNull Path puzzlePath, @NotNull List<Sol> solutions) {
+            this.solutions = List.copyOf(solutions);
+            List<CategoryRecord<R, C>> categoryRecords = new ArrayList<>(solutions.size());
+            Map<C, R> holders = new EnumMap<>(getCategoryClass());
+            for (Sol solution : solutions) {
+                CategoryRecord<R, C> categoryRecord =
+                        solution.extendToCategoryRecord(puzzle,
+                                                        makeArchiveLink(puzzle, solution.getScore()),
+                                                        makeArchivePath(puzzlePath, solution.getScore()));
+                categoryRecords.add(categoryRecord);
+                for (C category : solution.getCategories()) {
+                    holders.putIfAbsent(category, categoryRecord.getRecord());
+                }
+            }
+            this.categoryRecords = Collections.unmodifiableList(categoryRecords);
+            this.holders = Collections.unmodifiableMap(holders);
         }
-        catch (IOException e) {
-            throw new UncheckedIOException(e);
+
+        @NotNull
+        public List<Sol> getSolutions() {
+            return solutions;
+        }
+
+        /** @return the record of every solution, in index order */
+        @NotNull
+        public List<CategoryRecord<R, C>> getCategoryRecords() {
+            return categoryRecords;
         }
     }
 
-    protected void writeToRedditLeaderboard(@NotNull P puzzle, Path puzzlePath, @NotNull List<Sol> solutions, String updateMessage) {
-        List<String> lines = Pattern.compile("\\r?\\n")
-                                    .splitAsStream(getRedditService().getWikiPage(getSubreddit(), getWikiPageName()))
-                                    .collect(Collectors.toList()); // mutable list
-        Pattern puzzleRegex = Pattern.compile("^\\| \\[" + Pattern.quote(puzzle.getDisplayName()) + "]");
+    private String cacheKey(@NotNull P puzzle) {
+        return relativePuzzlePath(puzzle).toString().replace(File.separatorChar, '/');
+    }
 
-        ListIterator<String> it = lines.listIterator();
+    /**
+     * reads the index as of the snapshot commit, a missing index is an empty one
+     * @return a mutable list
+     */
+    public List<Sol> unmarshalSolutions(@NotNull GitRepository.Snapshot snapshot, @NotNull Path puzzlePath) throws IOException {
+        ObjectLoader loader = snapshot.open(puzzlePath.resolve("solutions.psv").toFile());
+        if (loader == null)
+            return new ArrayList<>();
+        return PsvCodec.read(new String(loader.getCachedBytes(), StandardCharsets.UTF_8), getSolUnmarshaller());
+    }
 
-        // | [Puzzle](https://zlbb) | [(**c**/pp/l)](https://cp.txt) | [(c/**pp**/l)](https://pc.txt) | [(c/pp/**l**)](https://lc.txt)
-        // |                        | [(**c**/pp/l)](https://cl.txt) |                                | [(c/pp/**l**)](https://lp.txt)
-        while (it.hasNext()) {
-            String line = it.next();
-            if (puzzleRegex.matcher(line).find()) {
-                it.remove();
-                break;
-            }
-        }
+    public void marshalSolutions(@NotNull List<Sol> solutions, @NotNull Path puzzlePath) throws IOException {
+        Files.writeString(puzzlePath.resolve("solutions.psv"), marshalIndex(solutions), StandardOpenOption.TRUNCATE_EXISTING);
+    }
 
-        while (it.hasNext()) {
-            String line = it.next();
-            if (line.equals("|") || line.isBlank()) {
-                it.previous();
-                break;
-            } else {
-                it.remove();
-            }
+    @NotNull
+    private String marshalIndex(@NotNull List<Sol> solutions) {
+        return PsvCodec.write(solutions.stream().map(Sol::marshal)::iterator);
+    }
+
+    public void rebuildRedditLeaderboard(P puzzle, String updateMessage) {
+        try (GitRepository.Snapshot snapshot = getGitRepo().snapshot()) {
+            Path puzzlePath = snapshot.getRepo().toPath().resolve(relativePuzzlePath(puzzle));
+            writeToRedditLeaderboard(puzzle, cachedIndex(snapshot, puzzle, puzzlePath), updateMessage);
         }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
+    /** Queues the puzzle rows on the {@link RedditWikiWriter}, the page is read and written later, off the git lock */
+    protected void writeToRedditLeaderboard(@NotNull P puzzle, @NotNull PuzzleIndex index, String updateMessage) {
         Map<C, R> recordMap = new EnumMap<>(getCategoryClass());
-        for (Sol solution: solutions) {
-            R record = solution.extendToRecord(puzzle,
-                                               makeArchiveLink(puzzle, solution.getScore()),
-                                               makeArchivePath(puzzlePath, solution.getScore()));
-            for (C category : solution.getCategories()) {
-                recordMap.put(category, record);
+        for (CategoryRecord<R, C> categoryRecord : index.getCategoryRecords()) {
+            for (C category : categoryRecord.getCategories()) {
+                recordMap.put(category, categoryRecord.getRecord());
             }
         }
         List<List<R>> recordsByColumn = Arrays.stream(getWikiCategories())
@@ -340,6 +836,7 @@ public abstract class AbstractSolutionRepository<C extends Enum<C> & CategoryJav
                                                               .toList())
                                               .toList();
 
+        List<String> rows = new ArrayList<>();
         int rowNum = Math.max(1, recordsByColumn.stream().mapToInt(List::size).max().orElseThrow());
         for (int rowIdx = 0; rowIdx < rowNum; rowIdx++) {
             StringJoiner row = new StringJoiner(" | ", "| ", "");
@@ -366,10 +863,51 @@ public abstract class AbstractSolutionRepository<C extends Enum<C> & CategoryJav
                 String cell = thisRecord.toDisplayString(displayContext);
                 row.add(cell);
             }
-            it.add(row.toString());
+            rows.add(row.toString());
         }
 
-        getRedditService().updateWikiPage(getSubreddit(), getWikiPageName(), String.join("\n", lines), updateMessage);
+        getWikiWriter().edit(getSubreddit(), getWikiPageName(), puzzle.getDisplayName(), updateMessage,
+                             page -> replacePuzzleRows(page, puzzle, rows));
+    }
+
+    @NotNull
+    private static String replacePuzzleRows(@NotNull String page, @NotNull Puzzle<?> puzzle, @NotNull List<String> rows) {
+        List<String> lines = Pattern.compile("\\r?\\n")
+                                    .splitAsStream(page)
+                                    .collect(Collectors.toList()); // mutable list
+        Pattern puzzleRegex = Pattern.compile("^\\| \\[" + Pattern.quote(puzzle.getDisplayName()) + "]");
+
+        ListIterator<String> it = lines.listIterator();
+
+        // | [Puzzle](https://zlbb) | [(**c**/pp/l)](https://cp.txt) | [(c/**pp**/l)](https://pc.txt) | [(c/pp/**l**)](https://lc.txt)
+        // |                        | [(**c**/pp/l)](https://cl.txt) |                                | [(c/pp/**l**)](https://lp.txt)
+        while (it.hasNext()) {
+            String line = it.next();
+            if (puzzleRegex.matcher(line).find()) {
+                it.remove();
+                break;
+            }
+        }
+
+        while (it.hasNext()) {
+            String line = it.next();
+            if (line.equals("|") || line.isBlank()) {
+                it.previous();
+                break;
+            } else {
+                it.remove();
+            }
+        }
+
+        for (String row : rows)
+            it.add(row);
+        return String.join("\n", lines);
+    }
+
+    /** only excludes accesses to the same puzzle, multi-puzzle operations need the whole repository */
+    @NotNull
+    protected GitRepository.ReadWriteAccess acquireWriteAccess(@NotNull P puzzle) {
+        return getGitRepo().acquireWriteAccess(relativePuzzlePath(puzzle).toString());
     }
 
     @NotNull
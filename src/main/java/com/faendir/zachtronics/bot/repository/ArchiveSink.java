@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2023
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.faendir.zachtronics.bot.repository;
+
+import com.faendir.zachtronics.bot.model.Category;
+import com.faendir.zachtronics.bot.model.Record;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+
+/** Receives an archive export one record at a time, see {@link AbstractSolutionRepository#export} */
+@FunctionalInterface
+public interface ArchiveSink<P, R extends Record<C>, C extends Category> {
+    /**
+     * @param dataFile the solution file, relative to the repository with forward slashes
+     * @param data     the solution file as of the exported commit, {@code null} if there is none
+     */
+    void accept(@NotNull P puzzle, @NotNull CategoryRecord<R, C> categoryRecord, @NotNull String dataFile,
+                @Nullable ObjectLoader data) throws IOException;
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2023
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.faendir.zachtronics.bot.repository;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Answers pareto queries over the solutions of a puzzle, in the sense of
+ * {@link AbstractSolutionRepository#frontierCompare}.
+ * It is kept in sync with the solutions list by whoever edits the list.
+ */
+public interface DominanceIndex<T> {
+    /** every entry that is strictly better than {@code candidate} */
+    @NotNull
+    List<T> findDominating(@NotNull T candidate);
+
+    /** every entry {@code candidate} is better than or equal to */
+    @NotNull
+    List<T> findDominated(@NotNull T candidate);
+
+    void add(@NotNull T entry);
+
+    void remove(@NotNull T entry);
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2023
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.faendir.zachtronics.bot.repository;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.ToIntBiFunction;
+
+/** Compares the candidate with every entry, for games that don't provide anything smarter */
+class LinearDominanceIndex<T> implements DominanceIndex<T> {
+    private final List<T> entries;
+    private final ToIntBiFunction<T, T> frontierCompare;
+
+    LinearDominanceIndex(@NotNull Collection<T> entries, @NotNull ToIntBiFunction<T, T> frontierCompare) {
+        this.entries = new ArrayList<>(entries);
+        this.frontierCompare = frontierCompare;
+    }
+
+    @NotNull
+    @Override
+    public List<T> findDominating(@NotNull T candidate) {
+        List<T> result = new ArrayList<>();
+        for (T entry : entries) {
+            if (frontierCompare.applyAsInt(candidate, entry) > 0)
+                result.add(entry);
+        }
+        return result;
+    }
+
+    @NotNull
+    @Override
+    public List<T> findDominated(@NotNull T candidate) {
+        List<T> result = new ArrayList<>();
+        for (T entry : entries) {
+            if (frontierCompare.applyAsInt(candidate, entry) < 0)
+                result.add(entry);
+        }
+        return result;
+    }
+
+    @Override
+    public void add(@NotNull T entry) {
+        entries.add(entry);
+    }
+
+    @Override
+    public void remove(@NotNull T entry) {
+        entries.removeIf(e -> e == entry);
+    }
+}
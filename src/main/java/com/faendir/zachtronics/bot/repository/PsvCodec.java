@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2023
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.faendir.zachtronics.bot.repository;
+
+import com.opencsv.CSVParser;
+import com.opencsv.CSVParserBuilder;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.enums.CSVReaderNullFieldIndicator;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The {@code solutions.psv} format, as opencsv reads and writes it with a {@code '|'} separator and empty fields as {@code null}.
+ * <p>
+ * Plain indexes are scanned in one pass over the file text: every field is one substring, and the rows share one field
+ * array per width instead of getting one each. The unmarshallers still parse those strings, there are no typed fields.
+ * An index with quotes, escapes, carriage returns or empty lines is handed to opencsv as a whole,
+ * whose quirks with those we'd have to replicate otherwise.
+ */
+final class PsvCodec {
+    private static final char SEPARATOR = '|';
+    private static final char QUOTE = '"';
+    /** the parser's escape, the writer escapes with {@link #QUOTE} */
+    private static final char ESCAPE = '\\';
+    private static final char LINE_END = '\n';
+
+    private PsvCodec() {
+    }
+
+    /**
+     * @param unmarshaller gets the same array for every row of the same width, it must not keep it
+     * @return a mutable list
+     */
+    @NotNull
+    static <T> List<T> read(@NotNull String text, @NotNull Function<String[], T> unmarshaller) {
+        if (!isPlain(text))
+            return readWithOpencsv(text, unmarshaller);
+
+        List<T> result = new ArrayList<>();
+        String[] fields = new String[0];
+        int length = text.length();
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = text.indexOf(LINE_END, lineStart);
+            if (lineEnd < 0)
+                lineEnd = length;
+
+            int width = 1;
+            for (int i = lineStart; i < lineEnd; i++) {
+                if (text.charAt(i) == SEPARATOR)
+                    width++;
+            }
+            if (fields.length != width)
+                fields = new String[width];
+
+            int field = 0;
+            int fieldStart = lineStart;
+            for (int i = lineStart; i <= lineEnd; i++) {
+                if (i == lineEnd || text.charAt(i) == SEPARATOR) {
+                    fields[field++] = i == fieldStart ? null : text.substring(fieldStart, i);
+                    fieldStart = i + 1;
+                }
+            }
+            result.add(unmarshaller.apply(fields));
+            lineStart = lineEnd + 1;
+        }
+        return result;
+    }
+
+    /** no character opencsv treats specially and no empty lines */
+    private static boolean isPlain(@NotNull String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == QUOTE || c == ESCAPE || c == '\r')
+                return false;
+            if (c == LINE_END && (i == 0 || text.charAt(i - 1) == LINE_END))
+                return false;
+        }
+        return true;
+    }
+
+    @NotNull
+    private static <T> List<T> readWithOpencsv(@NotNull String text, @NotNull Function<String[], T> unmarshaller) {
+        CSVParser parser = new CSVParserBuilder().withSeparator(SEPARATOR).withFieldAsNull(CSVReaderNullFieldIndicator.BOTH).build();
+        CSVReader csvReader = new CSVReaderBuilder(new StringReader(text)).withCSVParser(parser).build();
+        List<T> result = new ArrayList<>();
+        for (String[] fields : csvReader) {
+            result.add(unmarshaller.apply(fields));
+        }
+        return result;
+    }
+
+    /** the same text {@code CSVWriter} writes with {@code applyQuotesToAll = false} */
+    @NotNull
+    static String write(@NotNull Iterable<String[]> rows) {
+        StringBuilder builder = new StringBuilder();
+        for (String[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                if (i != 0)
+                    builder.append(SEPARATOR);
+                String field = row[i];
+                if (field == null)
+                    continue;
+                if (needsQuotes(field)) {
+                    builder.append(QUOTE);
+                    for (int j = 0; j < field.length(); j++) {
+                        char c = field.charAt(j);
+                        if (c == QUOTE)
+                            builder.append(QUOTE);
+                        builder.append(c);
+                    }
+                    builder.append(QUOTE);
+                }
+                else {
+                    builder.append(field);
+                }
+            }
+            builder.append(LINE_END);
+        }
+        return builder.toString();
+    }
+
+    private static boolean needsQuotes(@NotNull String field) {
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == QUOTE || c == SEPARATOR || c == LINE_END || c == '\r')
+                return true;
+        }
+        return false;
+    }
+}
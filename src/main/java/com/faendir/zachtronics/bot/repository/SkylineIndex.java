@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2023
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.faendir.zachtronics.bot.repository;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Entries sorted lexicographically by their coordinates, where lower is better in every coordinate.
+ * Whatever dominates a candidate sorts before it and whatever it dominates sorts after it,
+ * so each query only walks one side, and not at all if the candidate is out of the per-coordinate bounds.
+ * <p>
+ * Entries only compare within the same partition, for metrics that have no direction.
+ */
+public class SkylineIndex<T> implements DominanceIndex<T> {
+    private final Function<T, int[]> coordinates;
+    private final ToIntFunction<T> partition;
+    private final Map<Integer, Partition> partitions = new HashMap<>();
+
+    /** @param coordinates lower is better, booleans as 0 and 1 */
+    public SkylineIndex(@NotNull Collection<T> entries, @NotNull Function<T, int[]> coordinates) {
+        this(entries, e -> 0, coordinates);
+    }
+
+    public SkylineIndex(@NotNull Collection<T> entries, @NotNull ToIntFunction<T> partition,
+                        @NotNull Function<T, int[]> coordinates) {
+        this.coordinates = coordinates;
+        this.partition = partition;
+        for (T entry : entries)
+            add(entry);
+    }
+
+    @NotNull
+    @Override
+    public List<T> findDominating(@NotNull T candidate) {
+        Partition p = partitions.get(partition.applyAsInt(candidate));
+        if (p == null)
+            return Collections.emptyList();
+        int[] point = coordinates.apply(candidate);
+        if (!allAtLeast(point, p.min()))
+            return Collections.emptyList();
+
+        List<T> result = new ArrayList<>();
+        for (Map.Entry<int[], List<T>> e : p.entries.headMap(point, false).entrySet()) {
+            if (allAtLeast(point, e.getKey()))
+                result.addAll(e.getValue());
+        }
+        return result;
+    }
+
+    @NotNull
+    @Override
+    public List<T> findDominated(@NotNull T candidate) {
+        Partition p = partitions.get(partition.applyAsInt(candidate));
+        if (p == null)
+            return Collections.emptyList();
+        int[] point = coordinates.apply(candidate);
+        if (!allAtLeast(p.max(), point))
+            return Collections.emptyList();
+
+        List<T> result = new ArrayList<>();
+        for (Map.Entry<int[], List<T>> e : p.entries.tailMap(point, true).entrySet()) {
+            if (allAtLeast(e.getKey(), point))
+                result.addAll(e.getValue());
+        }
+        return result;
+    }
+
+    @Override
+    public void add(@NotNull T entry) {
+        int[] point = coordinates.apply(entry);
+        Partition p = partitions.computeIfAbsent(partition.applyAsInt(entry), k -> new Partition());
+        p.entries.computeIfAbsent(point, k -> new ArrayList<>(1)).add(entry);
+        if (p.min != null) {
+            for (int i = 0; i < point.length; i++) {
+                p.min[i] = Math.min(p.min[i], point[i]);
+                p.max[i] = Math.max(p.max[i], point[i]);
+            }
+        }
+    }
+
+    @Override
+    public void remove(@NotNull T entry) {
+        int key = partition.applyAsInt(entry);
+        Partition p = partitions.get(key);
+        if (p == null)
+            return;
+        int[] point = coordinates.apply(entry);
+        List<T> same = p.entries.get(point);
+        if (same == null || !same.removeIf(e -> e == entry))
+            return;
+        if (same.isEmpty())
+            p.entries.remove(point);
+        if (p.entries.isEmpty())
+            partitions.remove(key);
+        // the bounds may have shrunk, recompute them on the next query
+        p.min = null;
+        p.max = null;
+    }
+
+    /** every coordinate of {@code a} is {@code >=} the one of {@code b} */
+    private static boolean allAtLeast(int[] a, int[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] < b[i])
+                return false;
+        }
+        return true;
+    }
+
+    private final class Partition {
+        private final TreeMap<int[], List<T>> entries = new TreeMap<int[], List<T>>(Arrays::compare);
+        private int[] min;
+        private int[] max;
+
+        int[] min() {
+            computeBounds();
+            return min;
+        }
+
+        int[] max() {
+            computeBounds();
+            return max;
+        }
+
+        private void computeBounds() {
+            if (min != null)
+                return;
+            int[] first = entries.firstKey();
+            min = first.clone();
+            max = first.clone();
+            for (int[] point : entries.keySet()) {
+                for (int i = 0; i < point.length; i++) {
+                    min[i] = Math.min(min[i], point[i]);
+                    max[i] = Math.max(max[i], point[i]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2023
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.faendir.zachtronics.bot.repository;
+
+import com.faendir.zachtronics.bot.git.Change;
+import com.faendir.zachtronics.bot.git.GitRepository;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parsed indexes by puzzle directory, valid for the commit in {@link #head}.
+ * Moving to a newer commit only drops the directories touched in between,
+ * older snapshots still get the directories that didn't change since theirs.
+ *
+ * @param <V> what is kept of an index, shared by every reader so it must not change
+ */
+class SolutionCache<V> {
+    interface Loader<V> {
+        V load() throws IOException;
+    }
+
+    private String head;
+    private final Map<String, V> entries = new HashMap<>();
+
+    /**
+     * @param puzzleDir relative to the repository, with forward slashes
+     * @return the index of {@code puzzleDir} as of the snapshot commit
+     */
+    @NotNull
+    V get(@NotNull GitRepository.Snapshot snapshot, @NotNull String puzzleDir, @NotNull Loader<V> loader)
+            throws IOException {
+        synchronized (this) {
+            if (!advance(snapshot).contains(puzzleDir)) {
+                V cached = entries.get(puzzleDir);
+                if (cached != null)
+                    return cached;
+            }
+        }
+
+        // parse outside the lock, other puzzles shouldn't wait for us
+        V loaded = loader.load();
+        synchronized (this) {
+            if (snapshot.currentHash().equals(head))
+                entries.putIfAbsent(puzzleDir, loaded);
+        }
+        return loaded;
+    }
+
+    /** stores the index a writer just committed, the snapshot has to include that commit */
+    synchronized void put(@NotNull GitRepository.Snapshot snapshot, @NotNull String puzzleDir, @NotNull V index) {
+        advance(snapshot);
+        if (snapshot.currentHash().equals(head))
+            entries.put(puzzleDir, index);
+    }
+
+    /**
+     * Moves {@link #head} to the snapshot commit, unless that one is older.
+     *
+     * @return the directories whose cached index doesn't match the snapshot, only ever filled for an older one
+     */
+    @NotNull
+    private Set<String> advance(@NotNull GitRepository.Snapshot snapshot) {
+        String target = snapshot.currentHash();
+        if (target.equals(head))
+            return Collections.emptySet();
+
+        if (head != null) {
+            List<Change> changes = snapshot.changesAfter(head);
+            if (changes != null) {
+                for (Change change : changes) {
+                    entries.remove(directoryOf(change.getOldName()));
+                    entries.remove(directoryOf(change.getNewName()));
+                }
+                head = target;
+                return Collections.emptySet();
+            }
+
+            // pinned reads routinely lag behind, they only miss what changed since
+            List<Change> missed = snapshot.changesUntil(head);
+            if (missed != null) {
+                Set<String> stale = new HashSet<>();
+                for (Change change : missed) {
+                    stale.add(directoryOf(change.getOldName()));
+                    stale.add(directoryOf(change.getNewName()));
+                }
+                return stale;
+            }
+        }
+
+        // unrelated commit, start over
+        entries.clear();
+        head = target;
+        return Collections.emptySet();
+    }
+
+    private static String directoryOf(String path) {
+        return path == null ? null : path.substring(0, Math.max(path.lastIndexOf('/'), 0));
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2023
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.faendir.zachtronics.bot.rest;
+
+import com.faendir.zachtronics.bot.model.Category;
+import com.faendir.zachtronics.bot.model.Record;
+import com.faendir.zachtronics.bot.repository.ArchiveSink;
+import com.faendir.zachtronics.bot.repository.CategoryRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams a whole game archive as of one commit, for mirrors that would otherwise scrape every puzzle.
+ * <p>
+ * {@link Format#NDJSON} is one record per line, {@link Format#ZIP} adds the solution files next to {@code records.ndjson}.
+ * The ETag is the commit, which never changes, so clients can poll with {@code If-None-Match} for free.
+ */
+public final class ArchiveExport {
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final String RECORDS_ENTRY = "records.ndjson";
+
+    public enum Format {
+        NDJSON, ZIP
+    }
+
+    @FunctionalInterface
+    public interface Exporter<P, R extends Record<C>, C extends Category> {
+        void export(@NotNull String commit, @NotNull ArchiveSink<P, R, C> sink) throws IOException;
+    }
+
+    private ArchiveExport() {
+    }
+
+    /**
+     * @param name          of the game, for the zip file name
+     * @param commit        requested by the client, {@code null} for the current head
+     * @param resolveCommit checks the requested commit, throws {@link IllegalArgumentException} if it is unknown
+     * @return {@code null} if the client already has it, the 304 is set on the request
+     */
+    @Nullable
+    public static <P, R extends Record<C>, C extends Category> ResponseEntity<StreamingResponseBody> respond(
+            @NotNull String name, @Nullable String commit, @NotNull Format format, @NotNull ServletWebRequest request,
+            @NotNull ObjectMapper objectMapper, @NotNull Function<String, String> resolveCommit,
+            @NotNull Exporter<P, R, C> exporter, @NotNull Function<P, String> puzzleId,
+            @NotNull Function<CategoryRecord<R, C>, ?> toDto) {
+        String resolved;
+        try {
+            resolved = resolveCommit.apply(commit);
+        }
+        catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+
+        // the body is streamed, it can't be buffered to hash it
+        ShallowEtagHeaderFilter.disableContentCaching(request.getRequest());
+        String etag = "\"" + resolved + "-" + format.name().toLowerCase() + "\"";
+        if (request.checkNotModified(etag))
+            return null;
+
+        StreamingResponseBody body = switch (format) {
+            case NDJSON -> out -> exporter.export(resolved, recordWriter(out, objectMapper, puzzleId, toDto));
+            case ZIP -> out -> {
+                ZipOutputStream zip = new ZipOutputStream(out);
+                // two passes, so neither the records nor the files have to be held back
+                zip.putNextEntry(new ZipEntry(RECORDS_ENTRY));
+                exporter.export(resolved, recordWriter(zip, objectMapper, puzzleId, toDto));
+                zip.closeEntry();
+                exporter.export(resolved, (puzzle, categoryRecord, dataFile, data) -> {
+                    if (data == null)
+                        return;
+                    zip.putNextEntry(new ZipEntry(dataFile));
+                    data.copyTo(zip);
+                    zip.closeEntry();
+                });
+                zip.finish();
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(etag);
+        if (format == Format.ZIP) {
+            ContentDisposition disposition = ContentDisposition.attachment()
+                                                               .filename(name + "-" + resolved.substring(0, 7) + ".zip")
+                                                               .build();
+            response.contentType(MediaType.parseMediaType("application/zip"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString());
+        }
+        else {
+            response.contentType(APPLICATION_NDJSON);
+        }
+        return response.body(body);
+    }
+
+    /** {@code {"puzzle": ..., "file": ..., "record": ...}} per line */
+    @NotNull
+    private static <P, R extends Record<C>, C extends Category> ArchiveSink<P, R, C> recordWriter(
+            @NotNull OutputStream out, @NotNull ObjectMapper objectMapper, @NotNull Function<P, String> puzzleId,
+            @NotNull Function<CategoryRecord<R, C>, ?> toDto) {
+        return (puzzle, categoryRecord, dataFile, data) -> {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("puzzle", puzzleId.apply(puzzle));
+            line.put("file", data == null ? null : dataFile);
+            line.put("record", toDto.apply(categoryRecord));
+            // writeValue(out) would close the stream after the first line
+            out.write(objectMapper.writeValueAsBytes(line));
+            out.write('\n');
+        };
+    }
+}
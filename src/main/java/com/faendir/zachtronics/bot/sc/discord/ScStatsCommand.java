@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2023
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.faendir.zachtronics.bot.sc.discord;
+
+import com.faendir.zachtronics.bot.discord.command.AbstractStatsCommand;
+import com.faendir.zachtronics.bot.discord.command.option.CommandOption;
+import com.faendir.zachtronics.bot.discord.command.option.OptionHelpersKt;
+import com.faendir.zachtronics.bot.sc.ScQualifier;
+import com.faendir.zachtronics.bot.sc.model.ScCategory;
+import com.faendir.zachtronics.bot.sc.model.ScPuzzle;
+import com.faendir.zachtronics.bot.sc.model.ScRecord;
+import com.faendir.zachtronics.bot.sc.model.ScSubmission;
+import com.faendir.zachtronics.bot.sc.repository.ScSolutionRepository;
+import com.faendir.zachtronics.bot.validation.ValidationResult;
+import discord4j.core.event.domain.interaction.ChatInputInteractionEvent;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+@RequiredArgsConstructor
+@Component
+@ScQualifier
+public class ScStatsCommand extends AbstractStatsCommand<ScCategory, ScPuzzle, ScSubmission, ScRecord> {
+    @Getter
+    private final CommandOption<String, String> solutionOption = OptionHelpersKt.linkOptionBuilder("export")
+            .description("Link or `m1` to scrape it from your last message. Start the solution name with `/B?P?` to set flags")
+            .required()
+            .build();
+    @Getter
+    private final ScSolutionRepository repository;
+
+    @NotNull
+    @Override
+    protected Collection<ValidationResult<ScSubmission>> makeSubmissions(@NotNull String link, @NotNull String author,
+                                                                         @NotNull ChatInputInteractionEvent event) {
+        return ScSubmission.fromExportLink(link, false, author);
+    }
+}
@@ -20,8 +20,12 @@ import com.faendir.zachtronics.bot.git.GitRepository;
 import com.faendir.zachtronics.bot.model.DisplayContext;
 import com.faendir.zachtronics.bot.model.StringFormat;
 import com.faendir.zachtronics.bot.reddit.RedditService;
+import com.faendir.zachtronics.bot.reddit.RedditWikiWriter;
 import com.faendir.zachtronics.bot.reddit.Subreddit;
 import com.faendir.zachtronics.bot.repository.AbstractSolutionRepository;
+import com.faendir.zachtronics.bot.repository.CategoryRecord;
+import com.faendir.zachtronics.bot.repository.DominanceIndex;
+import com.faendir.zachtronics.bot.repository.SkylineIndex;
 import com.faendir.zachtronics.bot.repository.SubmitResult;
 import com.faendir.zachtronics.bot.sc.model.*;
 import com.faendir.zachtronics.bot.utils.Markdown;
@@ -49,6 +53,7 @@ public class ScSolutionRepository extends AbstractSolutionRepository<ScCategory,
     private final ScCategory[][] wikiCategories = {{ C,  CNB,  CNP,  CNBP}, { S,  SNB,  SNP,  SNBP},
                                                    {RC, RCNB, RCNP, RCNBP}, {RS, RSNB, RSNP, RSNBP}};
     private final RedditService redditService;
+    private final RedditWikiWriter wikiWriter;
     private final Subreddit subreddit = Subreddit.SPACECHEM;
     private final String wikiPageName = null;
 
@@ -64,9 +69,9 @@ public class ScSolutionRepository extends AbstractSolutionRepository<ScCategory,
     @NotNull
     @Override
     public SubmitResult<ScRecord, ScCategory> submit(@NotNull ScSubmission submission) {
-        try (GitRepository.ReadWriteAccess access = gitRepo.acquireWriteAccess()) {
+        try (GitRepository.ReadWriteAccess access = acquireWriteAccess(submission.getPuzzle())) {
             BiConsumer<ScSubmission, Collection<ScCategory>> successCallback = (sub, wonCategories) -> {
-                access.push();
+                pushInBackground(access);
                 if (!wonCategories.isEmpty()) {
                     String redditAnnouncement = makeRedditAnnouncement(sub, wonCategories);
                     postAnnouncementToReddit(redditAnnouncement);
@@ -81,24 +86,14 @@ public class ScSolutionRepository extends AbstractSolutionRepository<ScCategory,
     public List<SubmitResult<ScRecord, ScCategory>> submitAll(
             @NotNull Collection<? extends ValidationResult<ScSubmission>> validationResults) {
         try (GitRepository.ReadWriteAccess access = gitRepo.acquireWriteAccess()) {
-            List<SubmitResult<ScRecord, ScCategory>> submitResults = new ArrayList<>();
             StringJoiner redditAnnouncement = new StringJoiner("  \n");
             BiConsumer<ScSubmission, Collection<ScCategory>> successCallback = (sub, wonCategories) -> {
                 if (!wonCategories.isEmpty())
                     redditAnnouncement.add(makeRedditAnnouncement(sub, wonCategories));
             };
+            List<SubmitResult<ScRecord, ScCategory>> submitResults = submitBatch(access, validationResults, successCallback);
 
-            for (ValidationResult<ScSubmission> validationResult : validationResults) {
-                if (validationResult instanceof ValidationResult.Valid<ScSubmission>) {
-                    ScSubmission submission = validationResult.getSubmission();
-                    submitResults.add(submitOne(access, submission, successCallback));
-                }
-                else {
-                    submitResults.add(new SubmitResult.Failure<>(validationResult.getMessage()));
-                }
-            }
-
-            access.push();
+            pushInBackground(access);
             if (redditAnnouncement.length() != 0) {
                 postAnnouncementToReddit(redditAnnouncement.toString());
             }
@@ -107,20 +102,17 @@ public class ScSolutionRepository extends AbstractSolutionRepository<ScCategory,
     }
 
     @Override
-    protected void writeToRedditLeaderboard(@NotNull ScPuzzle puzzle, Path puzzlePath, @NotNull List<ScSolution> solutions,
-                                            String updateMessage) {
+    protected void writeToRedditLeaderboard(@NotNull ScPuzzle puzzle, @NotNull PuzzleIndex index, String updateMessage) {
 
         Map<ScCategory, ScRecord> recordMap = new EnumMap<>(ScCategory.class);
         Map<ScCategory, ScRecord> videoRecordMap = new EnumMap<>(ScCategory.class);
-        List<ScRecord> videoRecords = solutions.stream()
-                                               .filter(s -> s.getDisplayLink() != null)
-                                               .map(s -> s.extendToRecord(puzzle, null, null)) // no export needed
-                                               .toList();
-        for (ScSolution solution: solutions) {
-            ScRecord record = solution.extendToRecord(puzzle,
-                                                      makeArchiveLink(puzzle, solution.getScore()),
-                                                      makeArchivePath(puzzlePath, solution.getScore()));
-            for (ScCategory category : solution.getCategories()) {
+        List<ScRecord> videoRecords = index.getSolutions().stream()
+                                           .filter(s -> s.getDisplayLink() != null)
+                                           .map(s -> s.extendToRecord(puzzle, null, null)) // no export needed
+                                           .toList();
+        for (CategoryRecord<ScRecord, ScCategory> categoryRecord : index.getCategoryRecords()) {
+            ScRecord record = categoryRecord.getRecord();
+            for (ScCategory category : categoryRecord.getCategories()) {
                 recordMap.put(category, record);
                 if (record.getDisplayLink() == null) {
                     videoRecords.stream()
@@ -131,7 +123,15 @@ public class ScSolutionRepository extends AbstractSolutionRepository<ScCategory,
             }
         }
 
-        String[] lines = redditService.getWikiPage(subreddit, puzzle.getGroup().getWikiPage()).split("\\r?\\n");
+        wikiWriter.edit(subreddit, puzzle.getGroup().getWikiPage(), puzzle.getDisplayName(), updateMessage,
+                        page -> replacePuzzleRows(page, puzzle, recordMap, videoRecordMap));
+    }
+
+    /** the cells of the categories without a record are kept as they are */
+    @NotNull
+    private String replacePuzzleRows(@NotNull String page, @NotNull ScPuzzle puzzle, @NotNull Map<ScCategory, ScRecord> recordMap,
+                                     @NotNull Map<ScCategory, ScRecord> videoRecordMap) {
+        String[] lines = page.split("\\r?\\n");
         Pattern puzzleRegex = Pattern.compile("^\\| \\[" + Pattern.quote(puzzle.getDisplayName()) + "(?: - |])");
 
         int rowIdx = 0;
@@ -199,7 +199,7 @@ public class ScSolutionRepository extends AbstractSolutionRepository<ScCategory,
             }
         }
 
-        redditService.updateWikiPage(subreddit, puzzle.getGroup().getWikiPage(), String.join("\n", lines), updateMessage);
+        return String.join("\n", lines);
     }
 
     @NotNull
@@ -259,6 +259,15 @@ public class ScSolutionRepository extends AbstractSolutionRepository<ScCategory,
         }
     }
 
+    @NotNull
+    @Override
+    protected DominanceIndex<ScSolution> makeDominanceIndex(@NotNull List<ScSolution> solutions) {
+        return new SkylineIndex<>(solutions, s -> {
+            ScScore score = s.getScore();
+            return new int[]{score.getCycles(), score.getReactors(), score.getSymbols(), score.isBugged() ? 1 : 0, score.isPrecognitive() ? 1 : 0};
+        });
+    }
+
     @Override
     protected boolean alreadyPresent(@NotNull ScSolution candidate, @NotNull ScSolution solution) {
         return candidate.getScore().equals(solution.getScore()) &&
@@ -17,6 +17,7 @@
 package com.faendir.zachtronics.bot.sc.rest;
 
 import com.faendir.zachtronics.bot.repository.CategoryRecord;
+import com.faendir.zachtronics.bot.rest.ArchiveExport;
 import com.faendir.zachtronics.bot.rest.GameRestController;
 import com.faendir.zachtronics.bot.rest.dto.SubmitResultTypeKt;
 import com.faendir.zachtronics.bot.sc.model.*;
@@ -25,19 +26,24 @@ import com.faendir.zachtronics.bot.sc.rest.dto.*;
 import com.faendir.zachtronics.bot.sc.validation.SChem;
 import com.faendir.zachtronics.bot.utils.UtilsKt;
 import com.faendir.zachtronics.bot.validation.ValidationResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/sc")
@@ -45,6 +51,7 @@ import java.util.*;
 public class ScController implements GameRestController<ScGroupDTO, ScPuzzleDTO, ScCategoryDTO, ScRecordDTO> {
     
     private final ScSolutionRepository repository;
+    private final ObjectMapper objectMapper;
     
     @Getter
     private final List<ScGroupDTO> groups = Arrays.stream(ScGroup.values()).map(ScGroupDTO::fromGroup).toList();
@@ -94,15 +101,24 @@ public class ScController implements GameRestController<ScGroupDTO, ScPuzzleDTO,
     }
 
     @PostMapping(path = "/submit", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public List<Map<String, Object>> submit(@NotNull @ModelAttribute ScSubmissionDTO submissionDTO) throws IOException {
+    public CompletableFuture<List<Map<String, Object>>> submit(@NotNull @ModelAttribute ScSubmissionDTO submissionDTO) throws IOException {
         if (submissionDTO.getVideo() != null && !UtilsKt.isValidLink(submissionDTO.getVideo()))
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid video link");
         String export = new String(submissionDTO.getExport().getBytes());
         Collection<ValidationResult<ScSubmission>> submissions = SChem.validateMultiExport(export, false, submissionDTO.getAuthor());
 
-        return repository.submitAll(submissions).stream()
-                         .map(r -> Map.of("result", SubmitResultTypeKt.toType(r), "data", r))
-                         .toList();
+        return repository.submitAllAsync(submissions)
+                         .thenApply(results -> results.stream()
+                                                      .map(r -> Map.<String, Object>of("result", SubmitResultTypeKt.toType(r), "data", r))
+                                                      .toList());
+    }
+
+    @Override
+    public ResponseEntity<StreamingResponseBody> export(String commit, @NotNull ArchiveExport.Format format,
+                                                        @NotNull ServletWebRequest request) {
+        return ArchiveExport.respond("sc", commit, format, request, objectMapper, repository::exportCommit,
+                                     (hash, sink) -> repository.export(hash, Arrays.asList(ScPuzzle.values()), sink),
+                                     ScPuzzle::name, ScRecordDTO::fromCategoryRecord);
     }
 
     private static ScPuzzle findPuzzle(String puzzleId) {
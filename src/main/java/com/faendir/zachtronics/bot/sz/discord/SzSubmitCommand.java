@@ -16,7 +16,7 @@
 
 package com.faendir.zachtronics.bot.sz.discord;
 
-import com.faendir.zachtronics.bot.discord.command.AbstractSubmitCommand;
+import com.faendir.zachtronics.bot.discord.command.AbstractMultiSubmitCommand;
 import com.faendir.zachtronics.bot.discord.command.option.CommandOption;
 import com.faendir.zachtronics.bot.discord.command.option.CommandOptionBuilder;
 import com.faendir.zachtronics.bot.discord.command.option.OptionHelpersKt;
@@ -27,21 +27,30 @@ import com.faendir.zachtronics.bot.sz.model.SzPuzzle;
 import com.faendir.zachtronics.bot.sz.model.SzRecord;
 import com.faendir.zachtronics.bot.sz.model.SzSubmission;
 import com.faendir.zachtronics.bot.sz.repository.SzSolutionRepository;
+import com.faendir.zachtronics.bot.validation.ValidationException;
+import com.faendir.zachtronics.bot.validation.ValidationResult;
 import discord4j.core.event.domain.interaction.ChatInputInteractionEvent;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 @RequiredArgsConstructor
 @Component
 @SzQualifier
-public class SzSubmitCommand extends AbstractSubmitCommand<SzCategory, SzPuzzle, SzSubmission, SzRecord> {
-    private final CommandOption<String, String> solutionOption = OptionHelpersKt.linkOptionBuilder("solution")
-            .description("Link to the solution file, can be `m1` to scrape it from your last message")
+public class SzSubmitCommand extends AbstractMultiSubmitCommand<SzCategory, SzPuzzle, SzSubmission, SzRecord> {
+    private static final String SEPARATOR = ",";
+    private final CommandOption<String, List<String>> solutionOption = CommandOptionBuilder.string("solution")
+            .description("Link(s) to the solution file(s), accepts multiple separated by `,`, can be `m1` to scrape it")
             .required()
+            .convert((event, links) -> Arrays.stream(links.split(SEPARATOR))
+                                             .map(link -> OptionHelpersKt.resolveLink(event, link.trim()))
+                                             .toList())
             .build();
     private final CommandOption<String, String> authorOption = CommandOptionBuilder.string("author")
             .description("Name to appear on the Reddit leaderboard")
@@ -59,7 +68,26 @@ public class SzSubmitCommand extends AbstractSubmitCommand<SzCategory, SzPuzzle,
 
     @NotNull
     @Override
-    public SzSubmission parseSubmission(@NotNull ChatInputInteractionEvent event) {
-        return SzSubmission.fromLink(solutionOption.get(event), authorOption.get(event), imageOption.get(event));
+    public Collection<ValidationResult<SzSubmission>> parseSubmissions(@NotNull ChatInputInteractionEvent event) {
+        List<String> solutions = solutionOption.get(event);
+        String author = authorOption.get(event);
+        String image = imageOption.get(event);
+        if (image != null) {
+            if (solutions.size() != 1)
+                throw new IllegalArgumentException("Only one solution can be paired with an image");
+            if (solutions.contains(image))
+                throw new IllegalArgumentException("Solution link and image link cannot be the same link");
+        }
+
+        List<ValidationResult<SzSubmission>> results = new ArrayList<>();
+        for (String solution : solutions) {
+            try {
+                results.add(new ValidationResult.Valid<>(SzSubmission.fromLink(solution, author, image)));
+            }
+            catch (ValidationException | IllegalArgumentException e) {
+                results.add(new ValidationResult.Unparseable<>(e.getMessage()));
+            }
+        }
+        return results;
     }
 }
@@ -19,8 +19,11 @@ package com.faendir.zachtronics.bot.sz.repository;
 import com.faendir.zachtronics.bot.git.GitRepository;
 import com.faendir.zachtronics.bot.model.DisplayContext;
 import com.faendir.zachtronics.bot.reddit.RedditService;
+import com.faendir.zachtronics.bot.reddit.RedditWikiWriter;
 import com.faendir.zachtronics.bot.reddit.Subreddit;
 import com.faendir.zachtronics.bot.repository.AbstractSolutionRepository;
+import com.faendir.zachtronics.bot.repository.DominanceIndex;
+import com.faendir.zachtronics.bot.repository.SkylineIndex;
 import com.faendir.zachtronics.bot.sz.model.*;
 import lombok.AccessLevel;
 import lombok.Getter;
@@ -32,6 +35,7 @@ import org.springframework.stereotype.Component;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Comparator;
+import java.util.List;
 import java.util.function.Function;
 
 import static com.faendir.zachtronics.bot.sz.model.SzCategory.*;
@@ -42,6 +46,7 @@ import static com.faendir.zachtronics.bot.sz.model.SzCategory.*;
 public class SzSolutionRepository extends AbstractSolutionRepository<SzCategory, SzPuzzle, SzScore, SzSubmission, SzRecord, SzSolution> {
     private final SzCategory[][] wikiCategories = {{CP, CL}, {PC, PL}, {LC, LP}};
     private final RedditService redditService;
+    private final RedditWikiWriter wikiWriter;
     private final Subreddit subreddit = Subreddit.SHENZHEN_IO;
     private final String wikiPageName = "index";
 
@@ -75,6 +80,15 @@ public class SzSolutionRepository extends AbstractSolutionRepository<SzCategory,
         }
     }
 
+    @NotNull
+    @Override
+    protected DominanceIndex<SzSolution> makeDominanceIndex(@NotNull List<SzSolution> solutions) {
+        return new SkylineIndex<>(solutions, s -> {
+            SzScore score = s.getScore();
+            return new int[]{score.getCost(), score.getPower(), score.getLines()};
+        });
+    }
+
     /** allow same-score solution changes only if you are the original author */
     @Override
     protected boolean alreadyPresent(@NotNull SzSolution candidate, @NotNull SzSolution solution) {
@@ -17,6 +17,7 @@
 package com.faendir.zachtronics.bot.sz.rest;
 
 import com.faendir.zachtronics.bot.repository.CategoryRecord;
+import com.faendir.zachtronics.bot.rest.ArchiveExport;
 import com.faendir.zachtronics.bot.rest.GameRestController;
 import com.faendir.zachtronics.bot.sz.model.SzCategory;
 import com.faendir.zachtronics.bot.sz.model.SzGroup;
@@ -27,13 +28,17 @@ import com.faendir.zachtronics.bot.sz.rest.dto.SzCategoryDTO;
 import com.faendir.zachtronics.bot.sz.rest.dto.SzGroupDTO;
 import com.faendir.zachtronics.bot.sz.rest.dto.SzPuzzleDTO;
 import com.faendir.zachtronics.bot.sz.rest.dto.SzRecordDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Arrays;
 import java.util.EnumSet;
@@ -45,6 +50,7 @@ import java.util.List;
 public class SzController implements GameRestController<SzGroupDTO, SzPuzzleDTO, SzCategoryDTO, SzRecordDTO> {
     
     private final SzSolutionRepository repository;
+    private final ObjectMapper objectMapper;
     
     @Getter
     private final List<SzGroupDTO> groups = Arrays.stream(SzGroup.values()).map(SzGroupDTO::fromGroup).toList();
@@ -92,6 +98,14 @@ public class SzController implements GameRestController<SzGroupDTO, SzPuzzleDTO,
             return null;
     }
 
+    @Override
+    public ResponseEntity<StreamingResponseBody> export(String commit, @NotNull ArchiveExport.Format format,
+                                                        @NotNull ServletWebRequest request) {
+        return ArchiveExport.respond("sz", commit, format, request, objectMapper, repository::exportCommit,
+                                     (hash, sink) -> repository.export(hash, Arrays.asList(SzPuzzle.values()), sink),
+                                     SzPuzzle::name, SzRecordDTO::fromCategoryRecord);
+    }
+
     private static SzPuzzle findPuzzle(String puzzleId) {
         return Arrays.stream(SzPuzzle.values())
                      .filter(p -> p.getId().equalsIgnoreCase(puzzleId))
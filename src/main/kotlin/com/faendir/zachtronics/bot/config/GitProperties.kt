@@ -18,6 +18,7 @@ package com.faendir.zachtronics.bot.config
 
 import org.springframework.boot.context.properties.ConfigurationProperties
 import org.springframework.context.annotation.Configuration
+import java.time.Duration
 
 @Configuration("gitAccessProperties")
 @ConfigurationProperties(prefix = "git")
@@ -26,4 +27,20 @@ class GitProperties {
     lateinit var username: String
     var webhookSecret: String = " "
     var readonlyMode: Boolean = false
+    /** how many repositories are cloned concurrently at startup */
+    var cloneThreads: Int = 4
+    /** if set, clones are kept in `<workspaceDirectory>/<name>` across restarts instead of a temp dir */
+    var workspaceDirectory: String? = null
+    /** remote changes are normally announced by the webhook, this polls in case one got lost */
+    var syncInterval: Duration = Duration.ofMinutes(15)
+    /** a push goes out once no further commit was made for this long... */
+    var pushQuietPeriod: Duration = Duration.ofSeconds(2)
+    /** ...or this long after the oldest unpushed commit, whichever comes first */
+    var pushMaxDelay: Duration = Duration.ofSeconds(10)
+    /** puzzle scoped accesses to the same stripe exclude each other */
+    var lockStripes: Int = 64
+    /** submissions waiting for the writer of one repository, more are turned away */
+    var writeQueueCapacity: Int = 100
+    /** how often the clones are packed, skipped if the repository is busy at that time */
+    var gcInterval: Duration = Duration.ofHours(6)
 }
\ No newline at end of file
@@ -18,6 +18,7 @@ package com.faendir.zachtronics.bot.config
 
 import org.springframework.boot.context.properties.ConfigurationProperties
 import org.springframework.context.annotation.Configuration
+import java.time.Duration
 
 @Configuration
 @ConfigurationProperties(prefix = "reddit")
@@ -26,4 +27,11 @@ class RedditProperties {
     lateinit var clientId: String
     lateinit var username: String
     lateinit var password: String
+    /** a wiki page is edited once no further change to it came for this long... */
+    var wikiQuietPeriod: Duration = Duration.ofSeconds(5)
+    /** ...or this long after the oldest pending change, whichever comes first */
+    var wikiMaxDelay: Duration = Duration.ofSeconds(30)
+    /** tries per wiki edit, the wait doubles after each failure */
+    var wikiAttempts: Int = 4
+    var wikiRetryBackoff: Duration = Duration.ofSeconds(2)
 }
\ No newline at end of file
@@ -30,12 +30,13 @@ import com.faendir.zachtronics.bot.utils.smartFormat
 import com.faendir.zachtronics.bot.utils.toMetricsTree
 import com.faendir.zachtronics.bot.validation.ValidationResult
 import discord4j.core.event.domain.interaction.ChatInputInteractionEvent
+import reactor.core.publisher.Mono
 
 abstract class AbstractMultiSubmitCommand<C : Category, P : Puzzle<C>, S : Submission<C, P>, R : Record<C>> :
     AbstractSubmitCommand<C, P, S, R>() {
     override val description = "Submit any number of solutions"
 
-    override fun handleEvent(event: ChatInputInteractionEvent): SafeMessageBuilder {
+    override fun handleEventAsync(event: ChatInputInteractionEvent): Mono<out SafeMessageBuilder> {
         val validationResults = parseSubmissions(event)
         return if (validationResults.size == 1) {
             when (val result = validationResults.first()) {
@@ -45,8 +46,13 @@ abstract class AbstractMultiSubmitCommand<C : Category, P : Puzzle<C>, S : Submi
         } else submitAll(validationResults)
     }
 
-    private fun submitAll(validationResults: Collection<ValidationResult<S>>): MultiMessageSafeEmbedMessageBuilder {
-        val submissionResults = repository.submitAll(validationResults)
+    private fun submitAll(validationResults: Collection<ValidationResult<S>>): Mono<MultiMessageSafeEmbedMessageBuilder> =
+        Mono.fromFuture(repository.submitAllAsync(validationResults)).map { toMessage(validationResults, it) }
+
+    private fun toMessage(
+        validationResults: Collection<ValidationResult<S>>,
+        submissionResults: List<SubmitResult<R, C>>
+    ): MultiMessageSafeEmbedMessageBuilder {
 
         val successes = submissionResults.count { it is SubmitResult.Success }
         val (title, color) = when {
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2023
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.faendir.zachtronics.bot.discord.command
+
+import com.faendir.zachtronics.bot.discord.Colors
+import com.faendir.zachtronics.bot.discord.command.option.CommandOption
+import com.faendir.zachtronics.bot.discord.command.option.linkOptionBuilder
+import com.faendir.zachtronics.bot.discord.command.security.NotSecured
+import com.faendir.zachtronics.bot.discord.command.security.Secured
+import com.faendir.zachtronics.bot.model.Category
+import com.faendir.zachtronics.bot.model.DisplayContext
+import com.faendir.zachtronics.bot.model.Puzzle
+import com.faendir.zachtronics.bot.model.Record
+import com.faendir.zachtronics.bot.model.Submission
+import com.faendir.zachtronics.bot.repository.SolutionRepository
+import com.faendir.zachtronics.bot.repository.SubmitResult
+import com.faendir.zachtronics.bot.utils.MultiMessageSafeEmbedMessageBuilder
+import com.faendir.zachtronics.bot.utils.SafeMessageBuilder
+import com.faendir.zachtronics.bot.utils.embedCategoryRecords
+import com.faendir.zachtronics.bot.utils.orEmpty
+import com.faendir.zachtronics.bot.utils.smartFormat
+import com.faendir.zachtronics.bot.utils.toMetricsTree
+import com.faendir.zachtronics.bot.utils.user
+import com.faendir.zachtronics.bot.validation.ValidationResult
+import discord4j.core.event.domain.interaction.ChatInputInteractionEvent
+import kotlin.jvm.optionals.getOrNull
+
+/** Tells where a solution would place, through [SolutionRepository.submitDryRun] */
+abstract class AbstractStatsCommand<C : Category, P : Puzzle<C>, S : Submission<C, P>, R : Record<C>> : Command.BasicLeaf() {
+    override val name = "stats"
+    override val description = "Get information about a solution"
+    override val ephemeral: Boolean = true
+    override val secured: Secured = NotSecured
+
+    protected abstract val repository: SolutionRepository<C, P, S, R>
+
+    /** the games that call their file differently override it */
+    protected open val solutionOption: CommandOption<String, String> = linkOptionBuilder("solution")
+        .description("Link to the solution file, can be `m1` to scrape it from your last message")
+        .required()
+        .build()
+
+    override val options: List<CommandOption<*, *>>
+        get() = listOf(solutionOption)
+
+    protected open fun solutionLink(event: ChatInputInteractionEvent): String = solutionOption.get(event)
+
+    /** @return the solutions in the linked file, the stats take exactly one of them */
+    protected abstract fun makeSubmissions(link: String, author: String, event: ChatInputInteractionEvent): Collection<ValidationResult<S>>
+
+    override fun handleEvent(event: ChatInputInteractionEvent): SafeMessageBuilder {
+        val submission = parseSubmission(event)
+        when (val result = repository.submitDryRun(submission)) {
+            is SubmitResult.Success -> {
+                val beatenCategories: List<C> = result.beatenRecords.flatMap { it.categories }
+                return MultiMessageSafeEmbedMessageBuilder()
+                    .title("Stats: *${submission.puzzle.displayName}*")
+                    .color(Colors.SUCCESS)
+                    .description(
+                        "`${submission.score.toDisplayString(DisplayContext.discord())}`"
+                                + (if (beatenCategories.isEmpty()) " would be included in the pareto frontier." else " would be ${
+                            beatenCategories.smartFormat(
+                                submission.puzzle.supportedCategories.toMetricsTree()
+                            )
+                        }")
+                                + (result.message.orEmpty(prefix = "\n"))
+                                + (if (result.beatenRecords.isNotEmpty()) "\nWould beat:" else "")
+                    )
+                    .embedCategoryRecords(result.beatenRecords, submission.puzzle.supportedCategories)
+            }
+
+            is SubmitResult.AlreadyPresent, is SubmitResult.Updated ->
+                return MultiMessageSafeEmbedMessageBuilder()
+                    .title("Stats: *${submission.puzzle.displayName}*")
+                    .color(Colors.UNCHANGED)
+                    .description("`${submission.score.toDisplayString(DisplayContext.discord())}` was already submitted.")
+
+            is SubmitResult.NothingBeaten ->
+                return MultiMessageSafeEmbedMessageBuilder()
+                    .title("Stats: *${submission.puzzle.displayName}*")
+                    .color(Colors.UNCHANGED)
+                    .description("`${submission.score.toDisplayString(DisplayContext.discord())}` is beaten by:")
+                    .embedCategoryRecords(result.records, submission.puzzle.supportedCategories)
+
+            is SubmitResult.Failure -> throw IllegalArgumentException(result.message)
+        }
+    }
+
+    private fun parseSubmission(event: ChatInputInteractionEvent): S {
+        // the stats are for the one who asks
+        val author = event.user().let { it.globalName.getOrNull() ?: it.username }
+        val results = makeSubmissions(solutionLink(event), author, event)
+        require(results.size == 1) { "Stats need exactly one solution, got ${results.size}" }
+        return when (val result = results.first()) {
+            is ValidationResult.Valid -> result.submission
+            else -> throw IllegalArgumentException(result.message)
+        }
+    }
+}
@@ -32,20 +32,27 @@ import com.faendir.zachtronics.bot.utils.orEmpty
 import com.faendir.zachtronics.bot.utils.smartFormat
 import com.faendir.zachtronics.bot.utils.toMetricsTree
 import discord4j.core.event.domain.interaction.ChatInputInteractionEvent
+import reactor.core.publisher.Mono
 
-abstract class AbstractSubmitCommand<C : Category, P : Puzzle<C>, S : Submission<C, P>, R : Record<C>> : Command.BasicLeaf() {
+abstract class AbstractSubmitCommand<C : Category, P : Puzzle<C>, S : Submission<C, P>, R : Record<C>> : Command.Leaf() {
     override val name = "submit"
     override val description = "Submit a solution"
 
     protected abstract val repository: SolutionRepository<C, P, S, R>
 
-    override fun handleEvent(event: ChatInputInteractionEvent): SafeMessageBuilder {
+    /** the event thread is free while the submission waits for the archive */
+    override fun handle(event: ChatInputInteractionEvent): Mono<Void> = handleEventAsync(event).flatMap { it.send(event) }
+
+    open fun handleEventAsync(event: ChatInputInteractionEvent): Mono<out SafeMessageBuilder> {
         val submission = parseSubmission(event)
         return submitToRepository(submission)
     }
 
-    protected fun submitToRepository(submission: S): MultiMessageSafeEmbedMessageBuilder {
-        when (val result = repository.submit(submission)) {
+    protected fun submitToRepository(submission: S): Mono<MultiMessageSafeEmbedMessageBuilder> =
+        Mono.fromFuture(repository.submitAsync(submission)).map { result -> toMessage(submission, result) }
+
+    private fun toMessage(submission: S, result: SubmitResult<R, C>): MultiMessageSafeEmbedMessageBuilder {
+        when (result) {
             is SubmitResult.Success -> {
                 val beatenCategories: List<C> = result.beatenRecords.flatMap { it.categories }
                 return MultiMessageSafeEmbedMessageBuilder()
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2023
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.faendir.zachtronics.bot.git
+
+import kotlinx.datetime.Instant
+import org.eclipse.jgit.diff.DiffEntry
+import org.eclipse.jgit.diff.DiffFormatter
+import org.eclipse.jgit.errors.MissingObjectException
+import org.eclipse.jgit.lib.AnyObjectId
+import org.eclipse.jgit.lib.Config
+import org.eclipse.jgit.lib.Repository
+import org.eclipse.jgit.revwalk.RevCommit
+import org.eclipse.jgit.revwalk.RevWalk
+
+/**
+ * Answers change queries on the history of [repository] with one tree diff between the two ends of the range,
+ * so commits brought in by merges are covered no matter which parent they hang off.
+ * Unchanged subtrees are skipped by id, the cost grows with the size of the change, not with the length of the history.
+ *
+ * Keeps no state, nothing has to be built while commits are made.
+ */
+internal class ChangeLog(private val repository: Repository) {
+    /**
+     * changes since the last commit older than [instant] on the first-parent chain of [head],
+     * i.e. what the mainline looked like back then
+     */
+    fun since(head: AnyObjectId, instant: Instant): List<Change> = RevWalk(repository).use { walk ->
+        val since = instant.epochSeconds
+        var base: RevCommit? = walk.parseCommit(head)
+        while (base != null && base.commitTime >= since) {
+            base = base.parents.firstOrNull()?.let { walk.parseCommit(it) }
+        }
+        diff(base, walk.parseCommit(head))
+    }
+
+    /** changes after [cursor] up to [head], `null` if [cursor] is not part of the history of [head] */
+    fun after(head: AnyObjectId, cursor: AnyObjectId): List<Change>? = RevWalk(repository).use { walk ->
+        val from = try {
+            walk.parseCommit(cursor)
+        } catch (e: MissingObjectException) {
+            return null
+        }
+        val to = walk.parseCommit(head)
+        // a cursor newer than head is not part of its history either
+        if (!walk.isMergedInto(from, to)) return null
+        diff(from, to)
+    }
+
+    private fun diff(from: RevCommit?, to: RevCommit): List<Change> {
+        val diffs = repository.newObjectReader().use { reader ->
+            DiffFormatter(null).use { diffFormatter ->
+                diffFormatter.setReader(reader, Config())
+                diffFormatter.scan(from?.tree, to.tree)
+            }
+        }
+        // without rename detection every entry is an add, a delete or a modify of one path
+        return diffs.map { diff ->
+            when (diff.changeType) {
+                DiffEntry.ChangeType.ADD -> Change(diff.changeType, null, null, diff.newPath, diff.newId.toObjectId(), repository)
+                DiffEntry.ChangeType.DELETE -> Change(diff.changeType, diff.oldPath, diff.oldId.toObjectId(), null, null, repository)
+                else -> Change(diff.changeType, diff.oldPath, diff.oldId.toObjectId(), diff.newPath, diff.newId.toObjectId(), repository)
+            }
+        }
+    }
+}
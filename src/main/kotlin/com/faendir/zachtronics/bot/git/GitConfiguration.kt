@@ -17,32 +17,44 @@
 package com.faendir.zachtronics.bot.git
 
 import com.faendir.zachtronics.bot.config.GitProperties
+import com.google.common.util.concurrent.ThreadFactoryBuilder
+import jakarta.annotation.PreDestroy
 import org.springframework.context.annotation.Bean
 import org.springframework.context.annotation.Configuration
 import org.springframework.context.annotation.Profile
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
 
 @Configuration
 @Profile("!test")
 class GitConfiguration(private val gitProperties: GitProperties) {
+    /** all repositories clone at the same time, bounded so we don't hammer github */
+    private val cloneExecutor: ExecutorService =
+        Executors.newFixedThreadPool(gitProperties.cloneThreads, ThreadFactoryBuilder().setNameFormat("git-clone-%d").setDaemon(true).build())
+
+    @PreDestroy
+    fun shutdown() {
+        cloneExecutor.shutdownNow()
+    }
 
     @Bean("cwRepository")
-    fun cwRepository() = GitRepository(gitProperties, "chipwizard-leaderboard", "https://github.com/lastcallbbs-community-developers/chipwizard-leaderboard.git")
+    fun cwRepository() = GitRepository(gitProperties, "chipwizard-leaderboard", "https://github.com/lastcallbbs-community-developers/chipwizard-leaderboard.git", cloneExecutor)
 
     @Bean("fcRepository")
-    fun fcRepository() = GitRepository(gitProperties, "foodcourt-leaderboard", "https://github.com/lastcallbbs-community-developers/foodcourt-leaderboard.git")
+    fun fcRepository() = GitRepository(gitProperties, "foodcourt-leaderboard", "https://github.com/lastcallbbs-community-developers/foodcourt-leaderboard.git", cloneExecutor)
 
     @Bean("fpRepository")
-    fun fpRepository() = GitRepository(gitProperties, "forbidden-path-leaderboard", "https://github.com/lastcallbbs-community-developers/forbidden-path-leaderboard.git")
+    fun fpRepository() = GitRepository(gitProperties, "forbidden-path-leaderboard", "https://github.com/lastcallbbs-community-developers/forbidden-path-leaderboard.git", cloneExecutor)
 
     @Bean("ifRepository")
-    fun ifRepository() = GitRepository(gitProperties, "infinifactory-leaderboard", "https://github.com/12345ieee/infinifactory-leaderboard.git")
+    fun ifRepository() = GitRepository(gitProperties, "infinifactory-leaderboard", "https://github.com/12345ieee/infinifactory-leaderboard.git", cloneExecutor)
 
     @Bean("omLeaderboardRepository")
-    fun omGithubPagesLeaderboardRepository() = GitRepository(gitProperties, "om-leaderboard", "https://github.com/F43nd1r/om-leaderboard.git")
+    fun omGithubPagesLeaderboardRepository() = GitRepository(gitProperties, "om-leaderboard", "https://github.com/F43nd1r/om-leaderboard.git", cloneExecutor)
 
     @Bean("scArchiveRepository")
-    fun scArchiveRepository() = GitRepository(gitProperties, "sc-archive", "https://github.com/spacechem-community-developers/spacechem-archive.git")
+    fun scArchiveRepository() = GitRepository(gitProperties, "sc-archive", "https://github.com/spacechem-community-developers/spacechem-archive.git", cloneExecutor)
 
     @Bean("szRepository")
-    fun szRepository() = GitRepository(gitProperties, "shenzhenIO-leaderboard", "https://github.com/12345ieee/shenzhenIO-leaderboard.git")
+    fun szRepository() = GitRepository(gitProperties, "shenzhenIO-leaderboard", "https://github.com/12345ieee/shenzhenIO-leaderboard.git", cloneExecutor)
 }
\ No newline at end of file
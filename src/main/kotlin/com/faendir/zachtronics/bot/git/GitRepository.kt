@@ -20,204 +20,710 @@ import com.faendir.zachtronics.bot.config.GitProperties
 import com.faendir.zachtronics.bot.model.Puzzle
 import com.faendir.zachtronics.bot.model.Score
 import com.google.common.util.concurrent.CycleDetectingLockFactory
+import com.google.common.util.concurrent.Striped
+import com.google.common.util.concurrent.ThreadFactoryBuilder
+import io.micrometer.core.instrument.Counter
+import io.micrometer.core.instrument.DistributionSummary
+import io.micrometer.core.instrument.Gauge
+import io.micrometer.core.instrument.Metrics
+import io.micrometer.core.instrument.Timer
 import jakarta.annotation.PreDestroy
 import kotlinx.datetime.Instant
-import kotlinx.datetime.toJavaInstant
 import org.eclipse.jgit.api.Git
+import org.eclipse.jgit.api.RebaseCommand
 import org.eclipse.jgit.api.ResetCommand
 import org.eclipse.jgit.api.Status
 import org.eclipse.jgit.diff.DiffEntry
-import org.eclipse.jgit.diff.DiffFormatter
-import org.eclipse.jgit.lib.Config
 import org.eclipse.jgit.lib.Constants
+import org.eclipse.jgit.lib.ObjectId
 import org.eclipse.jgit.lib.ObjectLoader
+import org.eclipse.jgit.lib.Repository
 import org.eclipse.jgit.revwalk.RevCommit
-import org.eclipse.jgit.revwalk.RevSort
 import org.eclipse.jgit.revwalk.RevWalk
-import org.eclipse.jgit.revwalk.filter.CommitTimeRevFilter
+import org.eclipse.jgit.transport.RemoteRefUpdate
 import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider
 import org.eclipse.jgit.treewalk.TreeWalk
 import org.slf4j.LoggerFactory
+import org.springframework.boot.actuate.health.Health
+import org.springframework.boot.actuate.health.HealthIndicator
 import java.io.Closeable
 import java.io.File
+import java.io.IOException
 import java.nio.file.Files
 import java.util.*
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
 import java.util.concurrent.locks.Lock
+import java.util.concurrent.locks.ReentrantLock
+import java.util.function.Supplier
+import kotlin.concurrent.withLock
 
-open class GitRepository(private val gitProperties: GitProperties, val name: String, val url: String) {
+/**
+ * The clone runs on [cloneExecutor], construction returns immediately.
+ * Accesses block until [ready] completes, so a slow repository only delays its own users.
+ *
+ * If [GitProperties.workspaceDirectory] is set, an existing clone there is fetched and merged instead of cloned again,
+ * its unpushed commits are pushed with the first batch.
+ *
+ * Remote changes are fetched in the background (see [requestSync]), accesses never wait on the network.
+ * Local commits that conflict with them are moved to a branch of their own, which turns [health] DOWN.
+ * Pushes are batched the same way, see [ReadWriteAccess.push].
+ */
+open class GitRepository(
+    private val gitProperties: GitProperties,
+    val name: String,
+    val url: String,
+    cloneExecutor: Executor = ForkJoinPool.commonPool()
+) : HealthIndicator {
     companion object {
         private val logger = LoggerFactory.getLogger(GitRepository::class.java)
+        /** local commits that could be neither merged nor rebased end up on branches named like this */
+        const val MOVED_ASIDE_PREFIX = "unpushed-"
     }
 
     val rawFilesUrl = Regex("github.com/([^/]+)/([^/.]+)(?:.git)?").replaceFirst(url, "raw.githubusercontent.com/$1/$2/master")
-    private val repo = Files.createTempDirectory(name).toFile()
-    private val git: Git
+    private val persistent = gitProperties.workspaceDirectory != null
+    private val repo = gitProperties.workspaceDirectory?.let { File(it, name) } ?: Files.createTempDirectory(name).toFile()
     private val lock = CycleDetectingLockFactory.newInstance(CycleDetectingLockFactory.Policies.WARN).newReentrantReadWriteLock(name)
     private val writeLock = lock.writeLock()
     private val readLock = lock.readLock()
+    /** puzzle scoped accesses hold [readLock] plus one of these */
+    private val stripes = Striped.readWriteLock(gitProperties.lockStripes)
+    private val stripeWaits = ConcurrentHashMap<Int, Timer>()
+    /** the index is shared by all puzzles, so staging and committing is one at a time */
+    private val commitLock = ReentrantLock()
+
+    private val gitFuture: CompletableFuture<Git> = CompletableFuture.supplyAsync({
+        val start = System.currentTimeMillis()
+        val git = reuseExistingClone() ?: Git.cloneRepository().setURI(url).setDirectory(repo).call()
+        logger.info("prepared $name in ${System.currentTimeMillis() - start}ms")
+        git
+    }, cloneExecutor).whenComplete { _, t -> if (t != null) logger.error("failed to clone $name", t) }
+
+    /** completes once the repository is cloned, exceptionally if the clone failed */
+    val ready: CompletableFuture<Unit> = gitFuture.thenApply { }
+
+    private val git: Git
+        get() = gitFuture.join()
+
+    private val changeLog by lazy { ChangeLog(git.repository) }
+
+    /** fetches and pushes run here, never on a thread serving a request */
+    private val syncExecutor =
+        Executors.newSingleThreadScheduledExecutor(ThreadFactoryBuilder().setNameFormat("git-sync-$name").setDaemon(true).build())
+    private val syncQueued = AtomicBoolean()
+    private val externalChangeListeners = CopyOnWriteArrayList<Runnable>()
 
+    /** one writer per stripe, the tasks still take their stripe lock, so writes to different puzzles run side by side */
+    private val writeQueue = ArrayBlockingQueue<Runnable>(gitProperties.writeQueueCapacity)
+    private val writeExecutor = ThreadPoolExecutor(gitProperties.lockStripes, gitProperties.lockStripes, 0, TimeUnit.MILLISECONDS, writeQueue,
+        ThreadFactoryBuilder().setNameFormat("git-write-$name-%d").setDaemon(true).build())
+    private val writeWait = Timer.builder("git.write.queue.wait").tag("repository", name).register(Metrics.globalRegistry)
+    private val writeProcessing = Timer.builder("git.write.processing").tag("repository", name).register(Metrics.globalRegistry)
+
+    init {
+        Gauge.builder("git.write.queue.depth", writeQueue) { it.size.toDouble() }.tag("repository", name).register(Metrics.globalRegistry)
+    }
+
+    private val pushLock = Any()
+    /** completed once the push carrying their commit went through */
+    private var pendingPushes = mutableListOf<CompletableFuture<Unit>>()
+    private var firstPendingPush = 0L
+    private var scheduledPush: ScheduledFuture<*>? = null
+    private val readMetrics = AccessMetrics("read")
+    private val writeMetrics = AccessMetrics("write")
+    private val fetchLatency = Timer.builder("git.fetch.latency").tag("repository", name).register(Metrics.globalRegistry)
+    private val fetchFailures = Counter.builder("git.fetch.failures").tag("repository", name).register(Metrics.globalRegistry)
+    private val pushFailures = Counter.builder("git.push.failures").tag("repository", name).register(Metrics.globalRegistry)
+    private val commitLatency = Timer.builder("git.commit.latency").tag("repository", name).register(Metrics.globalRegistry)
+    private val pushLatency = Timer.builder("git.push.latency").tag("repository", name).register(Metrics.globalRegistry)
+    private val pushBatchSize = DistributionSummary.builder("git.push.batch.size").tag("repository", name).register(Metrics.globalRegistry)
+
+    /** object store statistics as of the last [maintain] */
     @Volatile
-    private var remoteHash: String
+    private var gcStatistics = Properties()
 
     init {
-        writeLock.lock()
-        git = Git.cloneRepository().setURI(url).setDirectory(repo).call()
-        remoteHash = git.repository.resolve("HEAD").name()
-        writeLock.unlock()
-    }
-
-    private fun ensureUpToDate(): ReadAccess {
-        var read: ReadAccess? = null
-        val hash = try {
-            read = ReadAccess(readLock, repo)
-            read.currentHash()
-        } catch (t: Throwable) {
-            read?.close()
-            throw t
-        }
-        if (hash == remoteHash) {
-            logger.debug("$name is up to date, not pulling")
-            return read
-        }
-        read.close()
-        var write: ReadWriteAccess? = null
+        // commits a previous run couldn't push, see reuseExistingClone
+        gitFuture.thenAccept { if (it.hasUnpushedCommits()) schedulePush() }
+        // safety net for missed webhook calls
+        gitFuture.thenRun {
+            val interval = gitProperties.syncInterval.toMillis()
+            syncExecutor.scheduleWithFixedDelay(::requestSync, interval, interval, TimeUnit.MILLISECONDS)
+        }
+        gitFuture.thenRun {
+            syncExecutor.execute { gcStatistics = git.gc().statistics }
+            val interval = gitProperties.gcInterval.toMillis()
+            syncExecutor.scheduleWithFixedDelay(::maintain, interval, interval, TimeUnit.MILLISECONDS)
+        }
+        for ((metric, statistic) in mapOf(
+            "git.objects.loose" to "numberOfLooseObjects",
+            "git.objects.loose.size" to "sizeOfLooseObjects",
+            "git.objects.packed" to "numberOfPackedObjects",
+            "git.objects.packed.size" to "sizeOfPackedObjects",
+            "git.packs" to "numberOfPackFiles",
+        )) {
+            Gauge.builder(metric) { gcStatistics[statistic]?.toString()?.toDoubleOrNull() ?: 0.0 }
+                .tag("repository", name)
+                .register(Metrics.globalRegistry)
+        }
+    }
+
+    /**
+     * @return the fetched and fast-forwarded clone left in [repo] by a previous run, `null` if there is none we can trust
+     */
+    private fun reuseExistingClone(): Git? {
+        if (!persistent) return null
+        if (!File(repo, Constants.DOT_GIT).isDirectory) {
+            repo.deleteRecursively()
+            return null
+        }
+        val git = try {
+            Git.open(repo)
+        } catch (e: Exception) {
+            // we can't tell whether it holds unpushed commits
+            moveAside(e)
+            return null
+        }
         try {
-            write = ReadWriteAccess(writeLock, repo)
-            git.pull().setTimeout(120).call()
-        } catch (t: Throwable) {
-            write?.close()
-            throw t
+            val origin = git.repository.config.getString("remote", Constants.DEFAULT_REMOTE_NAME, "url")
+            check(origin == url) { "existing clone points to $origin" }
+            // HEAD has to resolve to a commit we have the objects of
+            RevWalk(git.repository).use { it.parseCommit(git.repository.resolve(Constants.HEAD)) }
+
+            // leftovers of a submission that was interrupted by the shutdown
+            git.reset().setMode(ResetCommand.ResetType.HARD).call()
+            git.clean().setForce(true).setCleanDirectories(true).call()
+
+            git.fetch().setTimeout(120).call()
+            val tracking = checkNotNull(git.trackingBranch()) { "no tracking branch" }
+            // commits that didn't make it out before the shutdown are merged like remote ones, see mergeFetched
+            val merge = git.merge().include(tracking).call()
+            if (!merge.mergeStatus.isSuccessful) {
+                logger.warn("cannot merge ${tracking.name} into existing clone of $name: ${merge.mergeStatus}, rebasing instead")
+                git.reset().setMode(ResetCommand.ResetType.HARD).call()
+                rebaseOrMoveAside(git, tracking)
+            }
+            logger.info("reusing existing clone of $name")
+            return git
+        } catch (e: Exception) {
+            val unpushed = runCatching { git.hasUnpushedCommits() }.getOrDefault(true)
+            git.close()
+            if (unpushed) {
+                moveAside(e)
+            } else {
+                logger.warn("existing clone of $name is unusable, cloning again", e)
+                repo.deleteRecursively()
+            }
+            return null
         }
-        logger.debug("pulled $name")
-        return write
     }
 
+    /** keeps an unusable clone that may hold unpushed commits next to the fresh one */
+    private fun moveAside(cause: Exception) {
+        val aside = File(repo.parentFile, "${repo.name}-$MOVED_ASIDE_PREFIX${System.currentTimeMillis()}")
+        check(repo.renameTo(aside)) { "cannot move unusable clone of $name to $aside" }
+        logger.error("existing clone of $name is unusable and may hold unpushed commits, moved it to $aside and cloning again", cause)
+    }
+
+    private fun Git.hasUnpushedCommits(): Boolean {
+        val head = repository.resolve(Constants.HEAD) ?: return false
+        val tracking = trackingBranch() ?: return true
+        return RevWalk(repository).use { !it.isMergedInto(it.parseCommit(head), it.parseCommit(tracking)) }
+    }
+
+    private fun Git.trackingBranch(): ObjectId? =
+        repository.resolve("${Constants.R_REMOTES}${Constants.DEFAULT_REMOTE_NAME}/${repository.branch}")
+
     /**
      * needs to be closed to release repository access
      */
-    fun acquireReadAccess() = ensureUpToDate()
+    fun acquireReadAccess(): ReadAccess {
+        gitFuture.join()
+        return ReadAccess(listOf(readLock), repo)
+    }
 
     /**
+     * Only excludes writers of the same stripe as [path] and whole repository writers.
+     *
      * needs to be closed to release repository access
      */
-    fun acquireWriteAccess() = ensureUpToDate().let {
-        if (it is ReadWriteAccess) {
-            it
-        } else {
-            it.close()
-            ReadWriteAccess(writeLock, repo)
-        }
+    fun acquireReadAccess(path: String): ReadAccess {
+        gitFuture.join()
+        val stripe = stripeOf(path)
+        return ReadAccess(listOf(readLock, stripes.getAt(stripe).readLock()), repo, stripeWait(stripe))
+    }
+
+    /**
+     * needs to be closed to release repository access
+     */
+    fun acquireWriteAccess(): ReadWriteAccess {
+        gitFuture.join()
+        return ReadWriteAccess(listOf(writeLock), repo)
+    }
+
+    /**
+     * Writes to [path] only, accesses to other stripes run concurrently.
+     * Index operations are serialized, use [ReadWriteAccess.serialized] for multi-step ones.
+     *
+     * needs to be closed to release repository access
+     */
+    fun acquireWriteAccess(path: String): ReadWriteAccess {
+        gitFuture.join()
+        val stripe = stripeOf(path)
+        return ReadWriteAccess(listOf(readLock, stripes.getAt(stripe).writeLock()), repo, stripeWait(stripe))
+    }
+
+    private fun stripeOf(path: String) = Math.floorMod(path.hashCode(), stripes.size())
+
+    private fun stripeWait(stripe: Int): Timer = stripeWaits.computeIfAbsent(stripe) {
+        Timer.builder("git.lock.stripe.wait").tag("repository", name).tag("stripe", it.toString()).register(Metrics.globalRegistry)
+    }
+
+    /** Pushes whatever is committed, batched like [ReadWriteAccess.push], e.g. to retry one that failed */
+    fun requestPush(): CompletableFuture<Unit> = schedulePush()
+
+    /** [listener] runs on the sync thread after a fetch merged commits made somewhere else, no lock is held */
+    fun onExternalChange(listener: Runnable) {
+        externalChangeListeners.add(listener)
     }
 
     fun updateRemoteHash(remoteHash: String) {
-        this.remoteHash = remoteHash
+        logger.debug("$name has new remote head $remoteHash")
+        requestSync()
+    }
+
+    /**
+     * Queues a fetch on the sync thread, calls while one is already queued are coalesced.
+     * Accesses keep seeing the previous commit until the fetched objects are local and merged.
+     */
+    fun requestSync() {
+        if (!syncExecutor.isShutdown && syncQueued.compareAndSet(false, true)) {
+            syncExecutor.execute {
+                syncQueued.set(false)
+                try {
+                    sync()
+                } catch (e: Exception) {
+                    fetchFailures.increment()
+                    logger.warn("failed to sync $name", e)
+                }
+            }
+        }
+    }
+
+    private fun sync() {
+        val git = gitFuture.getNow(null) ?: return // the clone is fresh anyway
+        fetchLatency.record(Runnable { git.fetch().setTimeout(120).call() })
+        mergeFetched(git)
+    }
+
+    /**
+     * local only, takes the write lock just for the merge
+     *
+     * @return the branch the local commits were moved to if they conflict with the remote ones, see [rebaseOrMoveAside]
+     */
+    private fun mergeFetched(git: Git): String? {
+        val tracking = git.trackingBranch() ?: return null
+        val upToDate = RevWalk(git.repository).use { walk ->
+            walk.isMergedInto(walk.parseCommit(tracking), walk.parseCommit(git.repository.resolve(Constants.HEAD)))
+        }
+        if (upToDate) {
+            logger.debug("$name is up to date")
+            return null
+        }
+        writeLock.lock()
+        val movedTo = try {
+            val result = git.merge().include(tracking).call()
+            val movedTo = if (result.mergeStatus.isSuccessful) {
+                logger.debug("merged ${tracking.name} into $name")
+                null
+            } else {
+                logger.warn("cannot merge ${tracking.name} into $name: ${result.mergeStatus}, rebasing instead")
+                git.reset().setMode(ResetCommand.ResetType.HARD).call()
+                val branch = rebaseOrMoveAside(git, tracking)
+                if (branch != null) {
+                    // every commit still waiting for its push was moved, writers can't commit while we hold the write lock
+                    val orphaned = synchronized(pushLock) { pendingPushes.also { pendingPushes = mutableListOf() } }
+                    val failure = IllegalStateException("commits of $name conflict with the remote, they are kept on branch $branch")
+                    orphaned.forEach { it.completeExceptionally(failure) }
+                } else {
+                    schedulePush()
+                }
+                branch
+            }
+            movedTo
+        } finally {
+            writeLock.unlock()
+        }
+        for (listener in externalChangeListeners) {
+            try {
+                listener.run()
+            } catch (e: Exception) {
+                logger.error("external change listener of $name failed", e)
+            }
+        }
+        return movedTo
+    }
+
+    /**
+     * Replays the local commits onto [tracking], pushing them is up to the caller.
+     * If they conflict they are kept on a branch of their own for a maintainer to sort out and HEAD is reset to [tracking],
+     * otherwise this clone could never merge or push again.
+     *
+     * needs [writeLock] (or a clone nobody can access yet) and a clean working tree
+     *
+     * @return the branch the local commits were moved to, `null` if they were rebased
+     */
+    private fun rebaseOrMoveAside(git: Git, tracking: ObjectId): String? {
+        val local = git.repository.resolve(Constants.HEAD)
+        val rebase = git.rebase().setUpstream(tracking).call()
+        if (rebase.status.isSuccessful) {
+            logger.info("rebased the local commits of $name onto ${tracking.name}")
+            return null
+        }
+        runCatching { git.rebase().setOperation(RebaseCommand.Operation.ABORT).call() }
+        val branch = "$MOVED_ASIDE_PREFIX${System.currentTimeMillis()}"
+        git.branchCreate().setName(branch).setStartPoint(local.name).setForce(true).call()
+        git.reset().setMode(ResetCommand.ResetType.HARD).setRef(tracking.name).call()
+        val moved = RevWalk(git.repository).use { walk ->
+            walk.markStart(walk.parseCommit(local))
+            walk.markUninteresting(walk.parseCommit(tracking))
+            walk.map { "${it.abbreviate(7).name()} ${it.shortMessage}" }
+        }
+        logger.error("local commits of $name conflict with ${tracking.name} (${rebase.status}), moved them to branch $branch: $moved")
+        return branch
+    }
+
+    /**
+     * DOWN while the clone failed or local commits were moved aside by [rebaseOrMoveAside],
+     * until a maintainer deleted their branches.
+     */
+    override fun health(): Health {
+        if (!gitFuture.isDone) return Health.unknown().withDetail("clone", "in progress").build()
+        val git = try {
+            gitFuture.join()
+        } catch (e: Exception) {
+            return Health.down(e).build()
+        }
+        val movedAside = git.branchList().call().map { Repository.shortenRefName(it.name) }.filter { it.startsWith(MOVED_ASIDE_PREFIX) }
+        return if (movedAside.isEmpty()) Health.up().build() else Health.down().withDetail("unpushedBranches", movedAside).build()
+    }
+
+    /**
+     * Packs loose objects and prunes unreachable ones, so walks and status don't slow down over time.
+     * Only runs while nobody works on the repository, otherwise it waits for the next interval.
+     */
+    private fun maintain() {
+        if (writeQueue.isNotEmpty() || !writeLock.tryLock()) {
+            logger.debug("$name is busy, skipping gc")
+            return
+        }
+        try {
+            val start = System.currentTimeMillis()
+            val before = git.gc().statistics
+            git.gc().call()
+            gcStatistics = git.gc().statistics
+            logger.info("gc of $name took ${System.currentTimeMillis() - start}ms, " +
+                    "loose objects ${before["numberOfLooseObjects"]} -> ${gcStatistics["numberOfLooseObjects"]}, " +
+                    "packs ${before["numberOfPackFiles"]} -> ${gcStatistics["numberOfPackFiles"]}")
+        } catch (e: Exception) {
+            logger.warn("gc of $name failed", e)
+        } finally {
+            writeLock.unlock()
+        }
+    }
+
+    /**
+     * Runs [task] on a writer thread of this repository, [task] takes the access it needs itself.
+     * Once every writer is busy tasks wait in order of arrival,
+     * if [GitProperties.writeQueueCapacity] are already waiting, fails right away instead of piling up.
+     */
+    fun <T> enqueueWrite(task: Supplier<T>): CompletableFuture<T> {
+        val enqueued = System.nanoTime()
+        return try {
+            CompletableFuture.supplyAsync({
+                val start = System.nanoTime()
+                writeWait.record(start - enqueued, TimeUnit.NANOSECONDS)
+                try {
+                    task.get()
+                } finally {
+                    writeProcessing.record(System.nanoTime() - start, TimeUnit.NANOSECONDS)
+                }
+            }, writeExecutor)
+        } catch (e: RejectedExecutionException) {
+            CompletableFuture.failedFuture(IllegalStateException("Too many submissions to $name are waiting, please try again later."))
+        }
+    }
+
+    /**
+     * Pushes once no further push was requested for [GitProperties.pushQuietPeriod],
+     * but no later than [GitProperties.pushMaxDelay] after the first pending request.
+     */
+    private fun schedulePush(): CompletableFuture<Unit> {
+        if (gitProperties.readonlyMode) return CompletableFuture.completedFuture(Unit)
+        val future = CompletableFuture<Unit>()
+        synchronized(pushLock) {
+            val now = System.nanoTime()
+            if (pendingPushes.isEmpty()) firstPendingPush = now
+            pendingPushes.add(future)
+            scheduledPush?.cancel(false)
+            val delay = minOf(gitProperties.pushQuietPeriod.toNanos(), firstPendingPush + gitProperties.pushMaxDelay.toNanos() - now)
+            scheduledPush = syncExecutor.schedule(::pushPending, delay.coerceAtLeast(0), TimeUnit.NANOSECONDS)
+        }
+        return future
+    }
+
+    private fun pushPending() {
+        val batch = synchronized(pushLock) { pendingPushes.also { pendingPushes = mutableListOf() } }
+        if (batch.isEmpty()) return
+        pushBatchSize.record(batch.size.toDouble())
+        val start = System.nanoTime()
+        try {
+            // refs are read after the batch was taken, so every commit of the batch is included
+            if (pushRejected()) {
+                // someone pushed after our last sync, catch up and try once more
+                git.fetch().setTimeout(120).call()
+                mergeFetched(git)?.let { error("commits of $name conflict with the remote, they are kept on branch $it") }
+                check(!pushRejected()) { "push to $name rejected twice" }
+            }
+            pushLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS)
+            logger.debug("pushed ${batch.size} commits to $name")
+            batch.forEach { it.complete(Unit) }
+        } catch (e: Exception) {
+            pushFailures.increment()
+            logger.error("failed to push $name", e)
+            batch.forEach { it.completeExceptionally(e) }
+        }
+    }
+
+    private fun pushRejected(): Boolean {
+        val updates = git.push()
+            .setCredentialsProvider(UsernamePasswordCredentialsProvider(gitProperties.username, gitProperties.accessToken))
+            .setTimeout(120)
+            .call()
+            .flatMap { it.remoteUpdates }
+        if (updates.any { it.status == RemoteRefUpdate.Status.REJECTED_NONFASTFORWARD }) return true
+        val failed = updates.filter { it.status != RemoteRefUpdate.Status.OK && it.status != RemoteRefUpdate.Status.UP_TO_DATE }
+        check(failed.isEmpty()) { failed.joinToString { "${it.remoteName}: ${it.status} ${it.message.orEmpty()}" } }
+        return false
+    }
+
+    /**
+     * Pins the current HEAD, see [Snapshot].
+     *
+     * needs to be closed to release the object reader
+     */
+    fun snapshot(): Snapshot {
+        val head = git.repository.resolve(Constants.HEAD)
+        return Snapshot(RevWalk(git.repository).use { it.parseCommit(head) })
     }
 
-    open inner class ReadAccess(private val lock: Lock, val repo: File) : Closeable {
+    /**
+     * Pins [commit] instead of HEAD, see [Snapshot].
+     *
+     * @throws IOException if [commit] is not a commit of this clone
+     */
+    @Throws(IOException::class)
+    fun snapshot(commit: String): Snapshot {
+        val id = try {
+            ObjectId.fromString(commit)
+        } catch (e: IllegalArgumentException) {
+            throw IOException("$commit is not a commit hash", e)
+        }
+        return Snapshot(RevWalk(git.repository).use { it.parseCommit(id) })
+    }
+
+    /**
+     * The tree of a fixed [commit], read from the object database instead of the working tree.
+     * Takes no lock, writers keep going while it is open and it doesn't see their commits.
+     */
+    inner class Snapshot internal constructor(val commit: RevCommit) : Closeable {
+        private val reader = git.repository.newObjectReader()
+        val repo: File
+            get() = this@GitRepository.repo
+
+        fun currentHash(): String = commit.name
+
+        fun shortCurrentHash(): String = commit.abbreviate(7).name()
+
+        /** @return `null` if [file] is not part of this commit */
+        fun open(file: File): ObjectLoader? =
+            TreeWalk.forPath(reader, file.relativeTo(repo).invariantSeparatorsPath, commit.tree)?.let { reader.open(it.getObjectId(0)) }
+
+        fun changesSince(instant: Instant): List<Change> = changeLog.since(commit, instant)
+
+        /**
+         * @param cursor the [currentHash] of an earlier snapshot
+         * @return the changes since that snapshot, `null` if [cursor] is unknown
+         */
+        fun changesAfter(cursor: String): List<Change>? =
+            ObjectId.fromString(cursor).let { changeLog.after(commit, it) }
+
+        /**
+         * @param later the [currentHash] of a later snapshot
+         * @return the changes from this snapshot up to that one, `null` if [later] is unknown or not newer
+         */
+        fun changesUntil(later: String): List<Change>? =
+            ObjectId.fromString(later).let { changeLog.after(it, commit) }
+
+        override fun close() {
+            reader.close()
+        }
+    }
+
+    /** lock wait and hold times and the number of open accesses of one kind */
+    private inner class AccessMetrics(mode: String) {
+        val wait: Timer = Timer.builder("git.lock.wait").tag("repository", name).tag("mode", mode).register(Metrics.globalRegistry)
+        val hold: Timer = Timer.builder("git.lock.hold").tag("repository", name).tag("mode", mode).register(Metrics.globalRegistry)
+        val active = AtomicInteger()
+
         init {
-            lock.lock()
+            Gauge.builder("git.access.active", active) { it.toDouble() }.tag("repository", name).tag("mode", mode).register(Metrics.globalRegistry)
+        }
+    }
+
+    open inner class ReadAccess(private val locks: List<Lock>, val repo: File, lockWait: Timer? = null) : Closeable {
+        private val metrics = if (this is ReadWriteAccess) writeMetrics else readMetrics
+        private val acquired: Long
+
+        init {
+            val start = System.nanoTime()
+            locks.forEach { it.lock() }
+            acquired = System.nanoTime()
+            metrics.wait.record(acquired - start, TimeUnit.NANOSECONDS)
+            lockWait?.record(acquired - start, TimeUnit.NANOSECONDS)
+            metrics.active.incrementAndGet()
         }
 
         fun status(): Status = git.status().call()
 
+        /** only walks [file], which is a lot cheaper than a full [status] on big archives */
+        fun status(file: File): Status = git.status().addPath(file.relativeTo(repo).path).call()
+
         fun currentHash(): String = git.repository.resolve("HEAD").name()
 
         fun shortCurrentHash(): String = git.repository.resolve("HEAD").abbreviate(7).name()
 
         override fun close() {
-            lock.unlock()
-        }
-
-        fun changesSince(instant: Instant): List<Change> {
-            return RevWalk(git.repository).use { walk ->
-                val latestCommit = walk.parseCommit(git.repository.resolve(Constants.HEAD))
-                walk.markStart(latestCommit)
-                walk.sort(RevSort.COMMIT_TIME_DESC)
-                walk.revFilter = CommitTimeRevFilter.after(Date.from(instant.toJavaInstant()))
-                val firstCommit = walk.lastOrNull() ?: return@use emptyList()
-                val beforeCommit: RevCommit? = git.repository.resolve(firstCommit.name + "^")?.let { walk.parseCommit(it) }
-                DiffFormatter(null).use { diffFormatter ->
-                    diffFormatter.setReader(walk.objectReader, Config())
-                    diffFormatter.scan(beforeCommit?.tree, latestCommit.tree).map { diff ->
-                        Change(
-                            diff.changeType,
-                            diff.oldPath,
-                            diff.oldPath?.let { oldPath ->
-                                beforeCommit?.tree?.let { oldTree ->
-                                    TreeWalk.forPath(walk.objectReader, oldPath, oldTree)?.let {
-                                        it.objectReader.open(it.getObjectId(0))
-                                    }
-                                }
-                            },
-                            diff.newPath,
-                            diff.newPath?.let { newPath ->
-                                TreeWalk.forPath(walk.objectReader, newPath, latestCommit.tree)?.let {
-                                    it.objectReader.open(it.getObjectId(0))
-                                }
-                            },
-                        )
-                    }
-                }
-            }
+            metrics.active.decrementAndGet()
+            metrics.hold.record(System.nanoTime() - acquired, TimeUnit.NANOSECONDS)
+            locks.asReversed().forEach { it.unlock() }
         }
 
+        fun changesSince(instant: Instant): List<Change> = changeLog.since(git.repository.resolve(Constants.HEAD), instant)
+
+        /**
+         * @param cursor an earlier [currentHash]
+         * @return the changes since that commit, `null` if [cursor] is not part of the current history
+         */
+        fun changesAfter(cursor: String): List<Change>? =
+            changeLog.after(git.repository.resolve(Constants.HEAD), ObjectId.fromString(cursor))
     }
 
-    inner class ReadWriteAccess(lock: Lock, repo: File) : ReadAccess(lock, repo) {
+    inner class ReadWriteAccess(locks: List<Lock>, repo: File, lockWait: Timer? = null) : ReadAccess(locks, repo, lockWait) {
+        /** runs [block] without index operations of other accesses interleaving, e.g. add then commit */
+        fun <T> serialized(block: Supplier<T>): T = commitLock.withLock { block.get() }
+
         fun add(file: File) {
-            git.add().addFilepattern(file.relativeTo(repo).path).call()
+            commitLock.withLock { git.add().addFilepattern(file.relativeTo(repo).path).call() }
         }
 
         /** git add -A $file */
         fun addAll(file: File) {
             val relPath = file.relativeTo(repo).path
-            git.add().addFilepattern(relPath).call()
-            git.add().setUpdate(true).addFilepattern(relPath).call()
+            commitLock.withLock {
+                git.add().addFilepattern(relPath).call()
+                git.add().setUpdate(true).addFilepattern(relPath).call()
+            }
         }
 
         fun rm(file: File) {
-            git.rm().addFilepattern(file.relativeTo(repo).path).call()
+            commitLock.withLock { git.rm().addFilepattern(file.relativeTo(repo).path).call() }
         }
 
-        fun commitAndPush(user: String?, puzzle: Puzzle<*>, score: Score<*>, updated: Collection<String>) {
+        fun commitAndPush(user: String?, puzzle: Puzzle<*>, score: Score<*>, updated: Collection<String>): CompletableFuture<Unit> {
             commit(user, puzzle, score, updated)
-            push()
+            return push()
         }
 
-        fun commitAndPush(message: String) {
+        fun commitAndPush(message: String): CompletableFuture<Unit> {
             commit(message)
-            push()
+            return push()
         }
 
         fun commit(user: String?, puzzle: Puzzle<*>, score: Score<*>, updated: Collection<String>) {
             commit("${puzzle.displayName} ${score.toDisplayString()} $updated by ${user ?: "unknown"}")
         }
 
-        fun commit(message: String): RevCommit =
+        fun commit(message: String): RevCommit = commitLock.withLock {
+            val start = System.nanoTime()
             git.commit()
                 .setAuthor("zachtronics-leaderboard-bot", "zachtronics-leaderboard-bot@faendir.com")
                 .setCommitter("zachtronics-leaderboard-bot", "zachtronics-leaderboard-bot@faendir.com")
                 .setMessage("[BOT] $message")
                 .call()
-
-        fun push() {
-            if (!gitProperties.readonlyMode) {
-                git.push().setCredentialsProvider(UsernamePasswordCredentialsProvider(gitProperties.username, gitProperties.accessToken))
-                    .setTimeout(120).call()
-            }
+                .also { commitLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS) }
         }
 
+        /**
+         * Pushes are coalesced and sent from the sync thread, the access does not need to stay open.
+         * @return completes once the commits made so far are on the remote
+         */
+        fun push(): CompletableFuture<Unit> = schedulePush()
+
+        /** restores [file] to HEAD, leaving changes of other accesses alone */
         fun resetAndClean(file: File) {
-            git.reset().setMode(ResetCommand.ResetType.HARD).call()
-            git.clean().setForce(true).setPaths(setOf(file.relativeTo(repo).path)).call()
+            val path = file.relativeTo(repo).path
+            commitLock.withLock {
+                git.reset().addPath(path).call()
+                git.checkout().setStartPoint(Constants.HEAD).addPath(path).call()
+                val untracked = status(file).let { it.untracked + it.untrackedFolders }
+                git.clean().setForce(true).setCleanDirectories(true).setPaths(untracked).call()
+            }
         }
     }
 
     @PreDestroy
     open fun cleanup() {
-        git.close()
-        repo.deleteRecursively()
+        writeExecutor.shutdown()
+        if (!writeExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+            logger.warn("abandoning ${writeQueue.size} queued writes to $name")
+            writeExecutor.shutdownNow()
+        }
+        if (gitFuture.isDone && !gitFuture.isCompletedExceptionally) {
+            // don't lose commits still waiting for their push
+            runCatching { syncExecutor.submit(::pushPending).get() }
+        }
+        syncExecutor.shutdownNow()
+        runCatching { gitFuture.join() }.getOrNull()?.close()
+        if (!persistent) {
+            repo.deleteRecursively()
+        }
     }
 }
 
-data class Change(val type: DiffEntry.ChangeType, val oldName: String?, val oldContent: ObjectLoader?, val newName: String?, val newContent: ObjectLoader?)
\ No newline at end of file
+class Change(
+    val type: DiffEntry.ChangeType,
+    val oldName: String?,
+    val oldId: ObjectId?,
+    val newName: String?,
+    val newId: ObjectId?,
+    private val repository: Repository,
+) {
+    /** opened on access, so changes nobody looks at cost nothing */
+    val oldContent: ObjectLoader?
+        get() = oldId?.let { repository.open(it) }
+    val newContent: ObjectLoader?
+        get() = newId?.let { repository.open(it) }
+}
\ No newline at end of file
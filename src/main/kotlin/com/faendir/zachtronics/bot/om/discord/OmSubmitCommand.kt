@@ -36,6 +36,7 @@ import com.faendir.zachtronics.bot.utils.user
 import com.roxstudio.utils.CUrl
 import discord4j.core.GatewayDiscordClient
 import discord4j.core.event.domain.interaction.ChatInputInteractionEvent
+import kotlinx.coroutines.future.await
 import kotlinx.coroutines.reactor.awaitSingleOrNull
 import kotlinx.coroutines.reactor.mono
 import org.springframework.stereotype.Component
@@ -59,7 +60,7 @@ class OmSubmitCommand(private val repository: OmSolutionRepository, private val
     }
 
     protected suspend fun submitToRepository(submission: OmSubmission): MultiMessageSafeEmbedMessageBuilder {
-        val result = repository.submit(submission)
+        val result = repository.submitAsync(submission).await()
         val messages = discordClient.notifyOf(result)
         return when (result) {
             is SubmitResult.Success -> MultiMessageSafeEmbedMessageBuilder()
@@ -16,6 +16,8 @@
 
 package com.faendir.zachtronics.bot.om.model
 
+import java.util.*
+
 enum class OmScoreManifold(
     val displayName: String,
     vararg scorePartVararg: OmMetric.ScorePart<*>
@@ -59,4 +61,40 @@ enum class OmScoreManifold(
     fun frontierCompare(s1: OmScore, s2: OmScore): List<Int> {
         return scoreParts.map { it.comparator.compare(s1, s2) }
     }
+
+    /**
+     * The entries no other entry strictly beats on this manifold, the same ones [frontierCompare] finds comparing every pair.
+     *
+     * Each score part is replaced by the rank of its value, then the entries are swept in lexicographic order of their ranks:
+     * whatever beats an entry comes before it, and if that is beaten itself so is the entry by what beats it,
+     * so only the frontier found so far has to be checked.
+     */
+    fun <T> frontierOf(entries: Collection<T>, scoreOf: (T) -> OmScore): List<T> {
+        val list = entries.toList()
+        val ranks = Array(list.size) { IntArray(scoreParts.size) }
+        for ((part, scorePart) in scoreParts.withIndex()) {
+            val comparator = Comparator.comparing(scoreOf, scorePart.comparator)
+            val order = list.indices.sortedWith { i, j -> comparator.compare(list[i], list[j]) }
+            var rank = 0
+            for (k in order.indices) {
+                if (k > 0 && comparator.compare(list[order[k - 1]], list[order[k]]) != 0) rank++
+                ranks[order[k]][part] = rank
+            }
+        }
+
+        val frontier = ArrayList<Int>()
+        for (i in list.indices.sortedWith { i, j -> Arrays.compare(ranks[i], ranks[j]) }) {
+            if (frontier.none { strictlyBeats(ranks[it], ranks[i]) }) frontier.add(i)
+        }
+        return frontier.sorted().map { list[it] }
+    }
+
+    private fun strictlyBeats(r1: IntArray, r2: IntArray): Boolean {
+        var strictly = false
+        for (k in r1.indices) {
+            if (r1[k] > r2[k]) return false
+            if (r1[k] < r2[k]) strictly = true
+        }
+        return strictly
+    }
 }
\ No newline at end of file
@@ -29,6 +29,13 @@ internal data class OmMemoryRecord(
     val categories: MutableSet<OmCategory> = newEnumSet<OmCategory>()
 ) {
     fun toCategoryRecord() = CategoryRecord(record, categories)
+
+    /** a copy whose sets can be edited without touching this one */
+    fun mutableCopy() = OmMemoryRecord(
+        record,
+        frontierManifolds.toCollection(newEnumSet<OmScoreManifold>()),
+        categories.toCollection(newEnumSet<OmCategory>())
+    )
 }
 
 internal fun OmRecord.toMemoryRecord(repoPath: Path) =
@@ -16,11 +16,13 @@
 
 package com.faendir.zachtronics.bot.om.repository
 
+import com.faendir.zachtronics.bot.git.Change
 import com.faendir.zachtronics.bot.git.GitRepository
 import com.faendir.zachtronics.bot.imgur.ImgurService
 import com.faendir.zachtronics.bot.model.DisplayContext
 import com.faendir.zachtronics.bot.om.model.*
 import com.faendir.zachtronics.bot.om.rest.OmUrlMapper
+import com.faendir.zachtronics.bot.repository.ArchiveSink
 import com.faendir.zachtronics.bot.repository.CategoryRecord
 import com.faendir.zachtronics.bot.repository.SolutionRepository
 import com.faendir.zachtronics.bot.repository.SubmitResult
@@ -32,10 +34,16 @@ import kotlinx.serialization.json.Json
 import kotlinx.serialization.json.decodeFromStream
 import kotlinx.serialization.json.encodeToStream
 import org.eclipse.jgit.diff.DiffEntry
+import org.slf4j.LoggerFactory
 import org.springframework.beans.factory.annotation.Qualifier
 import org.springframework.stereotype.Component
 import java.io.File
+import java.io.IOException
 import java.util.*
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.atomic.AtomicReference
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
 
 @OptIn(ExperimentalSerializationApi::class)
 @Component
@@ -45,6 +53,10 @@ class OmSolutionRepository(
     private val omUrlMapper: OmUrlMapper,
     private val imgurService: ImgurService,
 ) : SolutionRepository<OmCategory, OmPuzzle, OmSubmission, OmRecord> {
+    companion object {
+        private val logger = LoggerFactory.getLogger(OmSolutionRepository::class.java)
+    }
+
     private val json = Json {
         prettyPrint = true
         allowSpecialFloatingPointValues = true
@@ -53,63 +65,106 @@ class OmSolutionRepository(
         (listOf(OmMetric.OVERLAP) + OmMetrics.VALUE) // overlap scores last, trackless in the mix
             .map { it.comparator }
             .reduce(Comparator<OmScore>::thenComparing))
-    private lateinit var data: Map<OmPuzzle, SortedSet<OmMemoryRecord>>
-    private var hash: String? = null
+    /** only ever replaced, never edited, so readers need no lock */
+    private val published = AtomicReference<OmSnapshot?>()
+    /** serializes the loads that run outside the write lock: the first one and the external syncs */
+    private val reloadLock = ReentrantLock()
+    private val puzzlesByDir = OmPuzzle.entries.associateBy { relativePuzzleDir(it) }
 
+    /** the first load waits for the clone off the startup thread, readers before it load on demand */
     @PostConstruct
     fun init() {
-        leaderboard.acquireReadAccess().use { leaderboardScope ->
-            loadData(leaderboardScope)
-            pageGenerator.update(leaderboardScope, OmCategory.entries, data)
-        }
+        leaderboard.onExternalChange(::reload)
+        leaderboard.ready.thenRunAsync {
+            reloadLock.withLock {
+                leaderboard.acquireReadAccess().use { leaderboardScope ->
+                    val data = refresh(leaderboardScope)
+                    pageGenerator.update(leaderboardScope, OmCategory.entries, data.records)
+                }
+            }
+        }.whenComplete { _, t -> if (t != null) logger.error("failed to load the om leaderboard", t) }
     }
 
-    private fun loadData(leaderboardScope: GitRepository.ReadAccess) {
-        data = OmPuzzle.entries.associateWith { sortedSetOf(memoryRecordOrder) }
-        for ((puzzle, memoryRecords) in data.entries) {
-            // fill map
-            leaderboardScope.getPuzzleDir(puzzle).takeIf { it.exists() }
-                ?.listFiles { file -> file.extension == "json" }
-                ?.map { file ->
-                    file.inputStream().buffered().use { json.decodeFromStream<OmRecord>(it) }
-                }
-                ?.map { it.toMemoryRecord(leaderboardScope.repo.toPath()) }
-                ?.forEach(memoryRecords::add)
-
-            // fill valid manifolds
-            for (mRecord in memoryRecords) {
-                manifolds@ for (manifold in OmScoreManifold.entries) {
-                    for (otherMRecord in memoryRecords) {
-                        val compares = manifold.frontierCompare(mRecord.record.score, otherMRecord.record.score)
-                        if (compares.all { it >= 0 } && compares.any { it > 0 })
-                            continue@manifolds
-                    }
-                    mRecord.frontierManifolds.add(manifold)
-                }
+    /** picks up the commits a sync merged, our own writes publish themselves */
+    internal fun reload() {
+        reloadLock.withLock { leaderboard.acquireReadAccess().use { refresh(it) } }
+    }
+
+    /** the puzzles are independent, each one is loaded on its own task of the common pool */
+    private fun loadPuzzles(leaderboardScope: GitRepository.ReadAccess, puzzles: Collection<OmPuzzle>): Map<OmPuzzle, SortedSet<OmMemoryRecord>> {
+        val loaded = puzzles.parallelStream()
+            .map { it to loadPuzzle(leaderboardScope, it) }
+            .toList()
+        return Collections.unmodifiableMap(loaded.toMap(EnumMap<OmPuzzle, SortedSet<OmMemoryRecord>>(OmPuzzle::class.java)))
+    }
+
+    private fun loadPuzzle(leaderboardScope: GitRepository.ReadAccess, puzzle: OmPuzzle): SortedSet<OmMemoryRecord> {
+        val memoryRecords = sortedSetOf(memoryRecordOrder)
+        // fill map
+        leaderboardScope.getPuzzleDir(puzzle).takeIf { it.exists() }
+            ?.listFiles { file -> file.extension == "json" }
+            ?.map { file ->
+                file.inputStream().buffered().use { json.decodeFromStream<OmRecord>(it) }
             }
+            ?.map { it.toMemoryRecord(leaderboardScope.repo.toPath()) }
+            ?.forEach(memoryRecords::add)
 
-            // fill cats
-            if (memoryRecords.isNotEmpty()) {
-                for (category in OmCategory.entries.filter { it.supportsPuzzle(puzzle) }) {
-                    memoryRecords
-                        .filter { category.supportsScore(it.record.score) }
-                        .minWithOrNull(Comparator.comparing({ it.record.score }, category.scoreComparator))
-                        ?.categories
-                        ?.add(category)
-                }
+        // fill valid manifolds
+        for (manifold in OmScoreManifold.entries) {
+            for (mRecord in manifold.frontierOf(memoryRecords) { it.record.score }) {
+                mRecord.frontierManifolds.add(manifold)
+            }
+        }
+
+        // fill cats
+        if (memoryRecords.isNotEmpty()) {
+            for (category in OmCategory.entries.filter { it.supportsPuzzle(puzzle) }) {
+                memoryRecords
+                    .filter { category.supportsScore(it.record.score) }
+                    .minWithOrNull(Comparator.comparing({ it.record.score }, category.scoreComparator))
+                    ?.categories
+                    ?.add(category)
             }
         }
+        return memoryRecords
     }
 
-    private fun loadDataIfNecessary(leaderboardScope: GitRepository.ReadAccess) {
+    /** the last published snapshot, it only waits if nothing was loaded yet */
+    private fun currentData(): OmSnapshot =
+        published.get() ?: reloadLock.withLock { published.get() ?: leaderboard.acquireReadAccess().use { refresh(it) } }
+
+    /**
+     * Loads and publishes the commit of [leaderboardScope] unless it already is.
+     * Only the puzzles whose directory changed since the last snapshot are reloaded,
+     * everything if its commit is not in the history anymore.
+     */
+    private fun refresh(leaderboardScope: GitRepository.ReadAccess): OmSnapshot {
+        val old = published.get()
         val currentHash = leaderboardScope.currentHash()
-        if (hash != currentHash) {
-            loadData(leaderboardScope)
-            hash = currentHash
+        if (old != null && old.hash == currentHash) return old
+        val changes = old?.let { leaderboardScope.changesAfter(it.hash) }
+        val records = if (old == null || changes == null) {
+            loadPuzzles(leaderboardScope, OmPuzzle.entries)
+        } else {
+            val changedPuzzles = changes.flatMap { listOfNotNull(it.oldName, it.newName) }
+                .mapNotNullTo(EnumSet.noneOf(OmPuzzle::class.java)) { puzzlesByDir[it.substringBeforeLast('/')] }
+            old.with(loadPuzzles(leaderboardScope, changedPuzzles))
         }
+        return OmSnapshot(currentHash, records).also { published.set(it) }
     }
 
-    override fun submit(submission: OmSubmission): SubmitResult<OmRecord, OmCategory> {
+    override fun submit(submission: OmSubmission): SubmitResult<OmRecord, OmCategory> =
+        prepareDisplayLink(submission) ?: archive(submission)
+
+    /** the gif upload happens on the calling thread, only archiving waits in the queue */
+    override fun submitAsync(submission: OmSubmission): CompletableFuture<SubmitResult<OmRecord, OmCategory>> =
+        prepareDisplayLink(submission)?.let { CompletableFuture.completedFuture(it) } ?: leaderboard.enqueueWrite { archive(submission) }
+
+    /**
+     * uploads the gif if the submission doesn't come with a link and would make it into the archive
+     * @return the dry run result if it would not
+     */
+    private fun prepareDisplayLink(submission: OmSubmission): SubmitResult<OmRecord, OmCategory>? {
         if (submission.displayLink == null) {
             val dryRunResult = submitDryRun(submission)
             if (dryRunResult is SubmitResult.Success || dryRunResult is SubmitResult.Updated) {
@@ -124,16 +179,23 @@ class OmSolutionRepository(
         } else if (submission.displayLink?.endsWith(".solution") == true) {
             throw IllegalArgumentException("You cannot use solution files as gifs.")
         }
+        return null
+    }
+
+    private fun archive(submission: OmSubmission): SubmitResult<OmRecord, OmCategory> {
         return leaderboard.acquireWriteAccess().use { leaderboardScope ->
-            val records by lazy { data.getValue(submission.puzzle) }
+            val data = refresh(leaderboardScope)
+            // edited on copies, readers keep seeing the published snapshot until the commit is done
+            val records = data.records.getValue(submission.puzzle).mapTo(sortedSetOf(memoryRecordOrder)) { it.mutableCopy() }
             val newMRecord by lazy { submission.createMRecord(leaderboardScope) }
-            val result = submit(leaderboardScope, submission) { beatenMRecord, beatenCategories, lostManifolds ->
+            val result = submit(records, submission) { beatenMRecord, beatenCategories, lostManifolds ->
                 if (beatenMRecord != null) {
                     beatenMRecord.frontierManifolds -= lostManifolds
                     if (beatenMRecord.frontierManifolds.isNotEmpty()) {
                         beatenMRecord.categories -= beatenCategories
                     } else {
                         beatenMRecord.remove(leaderboardScope)
+                        records.remove(beatenMRecord)
                     }
                 }
                 newMRecord.frontierManifolds += lostManifolds
@@ -146,13 +208,14 @@ class OmSolutionRepository(
                 else -> null
             }
             if (beatenRecords != null) {
-                pageGenerator.update(leaderboardScope, beatenRecords.flatMap { it.categories }, data)
+                val newRecords = data.with(mapOf(submission.puzzle to records))
+                pageGenerator.update(leaderboardScope, beatenRecords.flatMap { it.categories }, newRecords)
                 leaderboardScope.commitAndPush(
                     submission.author,
                     submission.puzzle,
                     submission.score,
                     beatenRecords.flatMap { it.categories }.map { it.toString() })
-                hash = leaderboardScope.currentHash()
+                published.set(OmSnapshot(leaderboardScope.currentHash(), newRecords))
             }
             when(result) {
                 is SubmitResult.Success -> result.copy(record = newMRecord.record.copy(author = submission.author))
@@ -162,17 +225,16 @@ class OmSolutionRepository(
         }
     }
 
-    fun submitDryRun(submission: OmSubmission): SubmitResult<OmRecord, OmCategory> {
-        return leaderboard.acquireReadAccess().use { leaderboardScope -> submit(leaderboardScope, submission) { _, _, _ -> } }
+    override fun submitDryRun(submission: OmSubmission): SubmitResult<OmRecord, OmCategory> {
+        return submit(currentData().records.getValue(submission.puzzle), submission) { _, _, _ -> }
     }
 
+    /** @param mRecords the frontier of the puzzle, only [handleBeatenRecord] edits it */
     private fun submit(
-        leaderboardScope: GitRepository.ReadAccess,
+        mRecords: SortedSet<OmMemoryRecord>,
         submission: OmSubmission,
         handleBeatenRecord: (beatenMRecord: OmMemoryRecord?, beatenCategories: Set<OmCategory>, lostManifolds: Set<OmScoreManifold>) -> Unit
     ): SubmitResult<OmRecord, OmCategory> {
-        loadDataIfNecessary(leaderboardScope)
-        val mRecords = data.getValue(submission.puzzle)
         val unclaimedCategories = OmCategory.entries.filter { it.supportsPuzzle(submission.puzzle) && it.supportsScore(submission.score) }.toMutableSet()
         val possibleManifolds = submission.score.manifolds.toMutableSet()
         val beatingWitnesses = mutableMapOf<OmScoreManifold, OmMemoryRecord>()
@@ -276,8 +338,7 @@ class OmSolutionRepository(
                 leaderboardScope.add(leaderboardFile)
             }
             leaderboardScope.commitAndPush("Score overrides (metadata)")
-            loadData(leaderboardScope)
-            pageGenerator.update(leaderboardScope, OmCategory.entries, data)
+            pageGenerator.update(leaderboardScope, OmCategory.entries, refresh(leaderboardScope).records)
         }
     }
 
@@ -287,35 +348,44 @@ class OmSolutionRepository(
             leaderboardScope.rm(record.dataPath.toFile())
             leaderboardScope.rm(File(dir, "${record.toFileStem()}.json"))
             leaderboardScope.commitAndPush(null, record.puzzle, record.score, listOf("DELETE"))
-            loadData(leaderboardScope)
-            pageGenerator.update(leaderboardScope, OmCategory.entries, data)
+            pageGenerator.update(leaderboardScope, OmCategory.entries, refresh(leaderboardScope).records)
         }
     }
 
     fun computeChangesSince(instant: Instant): List<OmRecordChange> {
-        return leaderboard.acquireReadAccess().use { leaderboardScope ->
-            leaderboardScope.changesSince(instant).mapNotNull { change ->
-
-                try {
-                    when (change.type) {
-                        DiffEntry.ChangeType.ADD -> if (change.newName!!.endsWith(".json")) {
-                            OmRecordChange(OmRecordChangeType.ADD, change.newContent!!.openStream().use { json.decodeFromStream(it) })
-                        } else {
-                            null
-                        }
-
-                        DiffEntry.ChangeType.DELETE -> if (change.oldName!!.endsWith(".json")) {
-                            OmRecordChange(OmRecordChangeType.REMOVE, change.oldContent!!.openStream().use { json.decodeFromStream(it) })
-                        } else {
-                            null
-                        }
-
-                        else -> null
-                    }
-                } catch (e: Exception) {
+        return leaderboard.snapshot().use { snapshot -> snapshot.changesSince(instant).mapNotNull { it.toRecordChange() } }
+    }
+
+    /**
+     * @param cursor the cursor of an earlier call, `null` to only get the current one
+     * @return the changes since [cursor] and the cursor to use next time, `null` if [cursor] is unknown
+     */
+    fun computeChangesAfter(cursor: String?): Pair<String, List<OmRecordChange>>? {
+        return leaderboard.snapshot().use { snapshot ->
+            val changes = if (cursor == null) emptyList() else snapshot.changesAfter(cursor) ?: return null
+            snapshot.currentHash() to changes.mapNotNull { it.toRecordChange() }
+        }
+    }
+
+    private fun Change.toRecordChange(): OmRecordChange? {
+        return try {
+            when (type) {
+                DiffEntry.ChangeType.ADD -> if (newName!!.endsWith(".json")) {
+                    OmRecordChange(OmRecordChangeType.ADD, newContent!!.openStream().use { json.decodeFromStream(it) })
+                } else {
                     null
                 }
+
+                DiffEntry.ChangeType.DELETE -> if (oldName!!.endsWith(".json")) {
+                    OmRecordChange(OmRecordChangeType.REMOVE, oldContent!!.openStream().use { json.decodeFromStream(it) })
+                } else {
+                    null
+                }
+
+                else -> null
             }
+        } catch (e: Exception) {
+            null
         }
     }
 
@@ -351,35 +421,79 @@ class OmSolutionRepository(
     private fun OmMemoryRecord.remove(leaderboardScope: GitRepository.ReadWriteAccess) {
         leaderboardScope.rm(record.dataPath.toFile())
         leaderboardScope.rm(record.dataPath.resolveSibling("${record.toFileStem()}.json").toFile())
-        data[record.puzzle]?.remove(this)
     }
 
-    private fun GitRepository.ReadAccess.getPuzzleDir(puzzle: OmPuzzle): File = File(repo, "${puzzle.group.name}/${puzzle.name}")
+    private fun GitRepository.ReadAccess.getPuzzleDir(puzzle: OmPuzzle): File = File(repo, relativePuzzleDir(puzzle))
+
+    private fun relativePuzzleDir(puzzle: OmPuzzle) = "${puzzle.group.name}/${puzzle.name}"
 
     private fun fileStemOf(puzzle: OmPuzzle, score: OmScore) = "${score.toDisplayString(DisplayContext.fileName())}_${puzzle.name}"
     private fun OmRecord.toFileStem() = fileStemOf(puzzle, score)
 
+    /**
+     * Only the loaded commit can be exported, older ones are not kept in memory.
+     *
+     * @param commit requested by the client, `null` for the loaded one
+     * @return the commit [export] reads
+     * @throws IllegalArgumentException if [commit] is not the loaded one
+     */
+    fun exportCommit(commit: String?): String {
+        val hash = currentData().hash
+        require(commit == null || commit == hash) { "Unknown commit $commit, only $hash can be exported" }
+        return hash
+    }
+
+    /**
+     * Hands every frontier record to the sink, with its solution file read from the object database.
+     *
+     * @param commit as returned by [exportCommit]
+     * @throws IOException if a newer commit was loaded in the meantime
+     */
+    @Throws(IOException::class)
+    fun export(commit: String, sink: ArchiveSink<OmPuzzle, OmRecord, OmCategory>) {
+        val data = currentData().takeIf { it.hash == commit } ?: throw IOException("$commit is not the loaded commit anymore")
+        leaderboard.snapshot(commit).use { snapshot ->
+            for ((puzzle, mRecords) in data.records) {
+                for (mRecord in mRecords) {
+                    val dataFile = mRecord.record.dataPath.toFile()
+                    sink.accept(puzzle, mRecord.toCategoryRecord(), dataFile.relativeTo(snapshot.repo).invariantSeparatorsPath,
+                        snapshot.open(dataFile))
+                }
+            }
+        }
+    }
+
+    /** @return the solution file of [record] as of the current commit, without waiting for writers */
+    fun readData(record: OmRecord): ByteArray? = leaderboard.snapshot().use { it.open(record.dataPath.toFile())?.bytes }
+
     override fun find(puzzle: OmPuzzle, category: OmCategory): OmRecord? {
-        leaderboard.acquireReadAccess().use { l -> loadDataIfNecessary(l) }
-        return data[puzzle]?.find { category in it.categories }?.record
+        return currentData().records[puzzle]?.find { category in it.categories }?.record
     }
 
     override fun findCategoryHolders(puzzle: OmPuzzle, includeFrontier: Boolean): List<CategoryRecord<OmRecord, OmCategory>> {
-        leaderboard.acquireReadAccess().use { l -> loadDataIfNecessary(l) }
-        return data[puzzle]
+        return currentData().records[puzzle]
             ?.filter { includeFrontier || it.categories.isNotEmpty() }
             ?.map(OmMemoryRecord::toCategoryRecord)
             ?: emptyList()
     }
 
     fun findAll(category: OmCategory): Map<OmPuzzle, OmRecord?> {
-        leaderboard.acquireReadAccess().use { l -> loadDataIfNecessary(l) }
-        return data.entries.filter { category.supportsPuzzle(it.key) }
+        return currentData().records.entries.filter { category.supportsPuzzle(it.key) }
             .associate { it.key to it.value.find { mr -> category in mr.categories }?.record }
     }
 
     val records: List<CategoryRecord<OmRecord, OmCategory>>
-        get() = data.values.flatten().map(OmMemoryRecord::toCategoryRecord)
+        get() = currentData().records.values.flatten().map(OmMemoryRecord::toCategoryRecord)
+}
+
+/** The leaderboard as of [hash], neither the map nor the records in it are edited once it is published */
+private class OmSnapshot(val hash: String, val records: Map<OmPuzzle, SortedSet<OmMemoryRecord>>) {
+    /** @return the records with [puzzles] replaced */
+    fun with(puzzles: Map<OmPuzzle, SortedSet<OmMemoryRecord>>): Map<OmPuzzle, SortedSet<OmMemoryRecord>> =
+        Collections.unmodifiableMap(EnumMap<OmPuzzle, SortedSet<OmMemoryRecord>>(OmPuzzle::class.java).apply {
+            putAll(records)
+            putAll(puzzles)
+        })
 }
 
 enum class OmRecordChangeType {
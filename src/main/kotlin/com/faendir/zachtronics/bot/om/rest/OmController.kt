@@ -23,9 +23,11 @@ import com.faendir.zachtronics.bot.om.repository.OmSolutionRepository
 import com.faendir.zachtronics.bot.om.rest.dto.*
 import com.faendir.zachtronics.bot.om.withCategory
 import com.faendir.zachtronics.bot.repository.SubmitResult
+import com.faendir.zachtronics.bot.rest.ArchiveExport
 import com.faendir.zachtronics.bot.rest.GameRestController
 import com.faendir.zachtronics.bot.rest.dto.SubmitResultType
 import com.faendir.zachtronics.bot.utils.isValidLink
+import com.fasterxml.jackson.databind.ObjectMapper
 import discord4j.core.GatewayDiscordClient
 import jakarta.annotation.PreDestroy
 import kotlinx.coroutines.CoroutineScope
@@ -36,13 +38,20 @@ import kotlinx.datetime.toKotlinInstant
 import org.springframework.format.annotation.DateTimeFormat
 import org.springframework.http.HttpStatus
 import org.springframework.http.MediaType
+import org.springframework.http.ResponseEntity
 import org.springframework.web.bind.annotation.*
+import org.springframework.web.context.request.ServletWebRequest
 import org.springframework.web.server.ResponseStatusException
-import kotlin.io.path.readBytes
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody
+import java.util.concurrent.CompletableFuture
 
 @RestController
 @RequestMapping("/om")
-class OmController(private val repository: OmSolutionRepository, private val discordClient: GatewayDiscordClient) :
+class OmController(
+    private val repository: OmSolutionRepository,
+    private val discordClient: GatewayDiscordClient,
+    private val objectMapper: ObjectMapper,
+) :
     GameRestController<OmGroupDTO, OmPuzzleDTO, OmCategoryDTO, OmRecordDTO> {
     private val discordScope = CoroutineScope(Dispatchers.Default)
 
@@ -104,25 +113,31 @@ class OmController(private val repository: OmSolutionRepository, private val dis
         return repository.find(puzzle, category)?.withCategory(category)?.toDTO()
     }
 
+    override fun export(commit: String?, format: ArchiveExport.Format, request: ServletWebRequest): ResponseEntity<StreamingResponseBody>? =
+        ArchiveExport.respond<OmPuzzle, OmRecord, OmCategory>(
+            "om", commit, format, request, objectMapper, repository::exportCommit,
+            { hash, sink -> repository.export(hash, sink) }, { it.id }, { it.toDTO() })
+
     @GetMapping("puzzle/{puzzleId}/record/{recordId}/file")
     fun getRecordFile(@PathVariable puzzleId: String, @PathVariable recordId: String): ByteArray =
         repository.findCategoryHolders(findPuzzle(puzzleId), includeFrontier = true)
             .find { recordId == it.record.id }
-            ?.record?.dataPath?.readBytes()
+            ?.record?.let { repository.readData(it) }
             ?: throw ResponseStatusException(HttpStatus.NOT_FOUND, "Record $recordId not found.")
 
     @PostMapping(path = ["/submit"], consumes = [MediaType.MULTIPART_FORM_DATA_VALUE], produces = [MediaType.APPLICATION_JSON_VALUE])
-    fun submit(@ModelAttribute submissionDTO: OmSubmissionDTO): SubmitResultType {
+    fun submit(@ModelAttribute submissionDTO: OmSubmissionDTO): CompletableFuture<SubmitResultType> {
         if (submissionDTO.gif != null && !isValidLink(submissionDTO.gif)) throw ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid gif")
         if (submissionDTO.gif == null && submissionDTO.gifData == null) throw ResponseStatusException(HttpStatus.BAD_REQUEST, "no gif")
         val submission = createSubmission(submissionDTO.gif, submissionDTO.gifData?.bytes, submissionDTO.author, submissionDTO.solution.bytes)
-        val result = repository.submit(submission)
-        discordScope.launch { discordClient.notifyOf(result) }
-        return when (result) {
-            is SubmitResult.Success,is SubmitResult.Updated  -> SubmitResultType.SUCCESS
-            is SubmitResult.Failure -> throw ResponseStatusException(HttpStatus.BAD_REQUEST, result.message)
-            is SubmitResult.NothingBeaten -> SubmitResultType.NOTHING_BEATEN
-            is SubmitResult.AlreadyPresent -> SubmitResultType.ALREADY_PRESENT
+        return repository.submitAsync(submission).thenApply { result ->
+            discordScope.launch { discordClient.notifyOf(result) }
+            when (result) {
+                is SubmitResult.Success,is SubmitResult.Updated  -> SubmitResultType.SUCCESS
+                is SubmitResult.Failure -> throw ResponseStatusException(HttpStatus.BAD_REQUEST, result.message)
+                is SubmitResult.NothingBeaten -> SubmitResultType.NOTHING_BEATEN
+                is SubmitResult.AlreadyPresent -> SubmitResultType.ALREADY_PRESENT
+            }
         }
     }
 
@@ -131,6 +146,17 @@ class OmController(private val repository: OmSolutionRepository, private val dis
         return repository.computeChangesSince(since.toKotlinInstant()).map { it.toDTO() }
     }
 
+    /** without a cursor, returns no changes and the current cursor to poll with */
+    @GetMapping(path = ["/records/changes"], produces = [MediaType.APPLICATION_JSON_VALUE])
+    fun getRecordChangesAfter(@RequestParam(required = false) cursor: String?): OmRecordChangesDTO {
+        val (next, changes) = try {
+            repository.computeChangesAfter(cursor)
+        } catch (e: IllegalArgumentException) {
+            null
+        } ?: throw ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown cursor $cursor")
+        return OmRecordChangesDTO(next, changes.map { it.toDTO() })
+    }
+
 
     @GetMapping(path = ["/records/new/{since}"], produces = [MediaType.APPLICATION_JSON_VALUE])
     fun getNewRecords(@PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) since: java.time.Instant): List<OmRecordDTO> {
@@ -21,4 +21,6 @@ import com.faendir.zachtronics.bot.om.repository.OmRecordChangeType
 
 data class OmRecordChangeDTO(val type: OmRecordChangeType, val record: OmRecordDTO)
 
-fun OmRecordChange.toDTO() = OmRecordChangeDTO(type, record.toDTO())
\ No newline at end of file
+fun OmRecordChange.toDTO() = OmRecordChangeDTO(type, record.toDTO())
+
+data class OmRecordChangesDTO(val cursor: String, val changes: List<OmRecordChangeDTO>)
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2023
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.faendir.zachtronics.bot.reddit
+
+import com.faendir.zachtronics.bot.config.RedditProperties
+import com.google.common.util.concurrent.ThreadFactoryBuilder
+import jakarta.annotation.PreDestroy
+import org.slf4j.LoggerFactory
+import org.springframework.stereotype.Component
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.TimeUnit
+import java.util.function.UnaryOperator
+
+/**
+ * Write-behind for the wiki leaderboards, so submissions never wait on reddit.
+ *
+ * Edits to a page are queued by key and flushed as a single wiki edit once no further edit came for
+ * [RedditProperties.wikiQuietPeriod], but no later than [RedditProperties.wikiMaxDelay] after the first pending one.
+ * A queued edit replaces the one pending under the same key, edits rewrite whole rows so the last one wins.
+ */
+@Component
+class RedditWikiWriter(private val redditService: RedditService, private val redditProperties: RedditProperties) {
+    companion object {
+        private val logger = LoggerFactory.getLogger(RedditWikiWriter::class.java)
+    }
+
+    private val executor =
+        Executors.newSingleThreadScheduledExecutor(ThreadFactoryBuilder().setNameFormat("reddit-wiki").setDaemon(true).build())
+    private val pages = ConcurrentHashMap<Pair<Subreddit, String>, Page>()
+
+    /**
+     * @param key the rows [edit] rewrites, usually the puzzle
+     * @return completes once the edit is on reddit, exceptionally if it could not be written
+     */
+    fun edit(subreddit: Subreddit, page: String, key: String, reason: String, edit: UnaryOperator<String>): CompletableFuture<Unit> =
+        pages.computeIfAbsent(subreddit to page) { Page(subreddit, page) }.enqueue(key, reason, edit)
+
+    /** writes everything that is pending right now and waits for it */
+    @PreDestroy
+    fun flush() {
+        CompletableFuture.allOf(*pages.values.map { CompletableFuture.runAsync(it::flush, executor) }.toTypedArray()).join()
+    }
+
+    private inner class Page(private val subreddit: Subreddit, private val name: String) {
+        /** the page as we last read or wrote it, `null` if it has to be read again */
+        private var known: String? = null
+        private var edits = LinkedHashMap<String, UnaryOperator<String>>()
+        private var reasons = mutableListOf<String>()
+        private var futures = mutableListOf<CompletableFuture<Unit>>()
+        private var firstPending = 0L
+        private var scheduled: ScheduledFuture<*>? = null
+
+        @Synchronized
+        fun enqueue(key: String, reason: String, edit: UnaryOperator<String>): CompletableFuture<Unit> {
+            val now = System.nanoTime()
+            if (edits.isEmpty()) firstPending = now
+            edits.remove(key)
+            edits[key] = edit
+            reasons.add(reason)
+            val future = CompletableFuture<Unit>()
+            futures.add(future)
+            scheduled?.cancel(false)
+            val delay = minOf(redditProperties.wikiQuietPeriod.toNanos(), firstPending + redditProperties.wikiMaxDelay.toNanos() - now)
+            scheduled = executor.schedule(::flush, delay.coerceAtLeast(0), TimeUnit.NANOSECONDS)
+            return future
+        }
+
+        /** only runs on [executor], so [known] is never read and written concurrently */
+        fun flush() {
+            val (batch, batchReasons, batchFutures) = synchronized(this) {
+                Triple(edits.values.toList(), reasons, futures).also {
+                    edits = LinkedHashMap()
+                    reasons = mutableListOf()
+                    futures = mutableListOf()
+                }
+            }
+            if (batch.isEmpty()) return
+            try {
+                val base = known ?: retrying { redditService.getWikiPage(subreddit, name) }
+                val content = batch.fold(base) { page, edit -> edit.apply(page) }
+                if (content.lines() != base.lines()) {
+                    retrying { redditService.updateWikiPage(subreddit, name, content, batchReasons.joinToString("; ")) }
+                }
+                known = content
+                logger.debug("wrote ${batch.size} edits to ${subreddit.id}/$name")
+                batchFutures.forEach { it.complete(Unit) }
+            } catch (e: Exception) {
+                // someone else may have edited the page in the meantime
+                known = null
+                logger.error("failed to write ${subreddit.id}/$name, the edits are lost until the next rebuild", e)
+                batchFutures.forEach { it.completeExceptionally(e) }
+            }
+        }
+
+        private fun <T> retrying(action: () -> T): T {
+            var wait = redditProperties.wikiRetryBackoff.toMillis()
+            for (attempt in 1 until redditProperties.wikiAttempts) {
+                try {
+                    return action()
+                } catch (e: Exception) {
+                    logger.warn("attempt $attempt at ${subreddit.id}/$name failed, retrying in ${wait}ms", e)
+                    Thread.sleep(wait)
+                    wait *= 2
+                }
+            }
+            return action()
+        }
+    }
+}
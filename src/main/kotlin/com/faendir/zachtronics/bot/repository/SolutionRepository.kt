@@ -21,6 +21,7 @@ import com.faendir.zachtronics.bot.model.Puzzle
 import com.faendir.zachtronics.bot.model.Record
 import com.faendir.zachtronics.bot.model.Submission
 import com.faendir.zachtronics.bot.validation.ValidationResult
+import java.util.concurrent.CompletableFuture
 
 interface SolutionRepository<C : Category, P : Puzzle<C>, S : Submission<C, P>, R: Record<C>> {
     fun submit(submission: S) : SubmitResult<R, C>
@@ -29,6 +30,18 @@ interface SolutionRepository<C : Category, P : Puzzle<C>, S : Submission<C, P>,
         throw NotImplementedError()
     }
 
+    /** queued behind the other writes to the same repository, the calling thread doesn't wait for the archive */
+    fun submitAsync(submission: S): CompletableFuture<SubmitResult<R, C>> = CompletableFuture.completedFuture(submit(submission))
+
+    /** @see submitAsync */
+    fun submitAllAsync(validationResults: Collection<ValidationResult<S>>): CompletableFuture<List<SubmitResult<R, C>>> =
+        CompletableFuture.completedFuture(submitAll(validationResults))
+
+    /** what [submit] would answer, without archiving anything */
+    fun submitDryRun(submission: S): SubmitResult<R, C> {
+        throw NotImplementedError()
+    }
+
     fun find(puzzle: P, category: C) : R? =
         findCategoryHolders(puzzle, false).firstOrNull { it.categories.contains(category) }?.record
 
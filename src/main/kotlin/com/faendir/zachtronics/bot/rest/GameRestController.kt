@@ -19,9 +19,12 @@ package com.faendir.zachtronics.bot.rest
 
 import com.faendir.zachtronics.bot.rest.dto.RecordDTO
 import org.springframework.http.MediaType
+import org.springframework.http.ResponseEntity
 import org.springframework.web.bind.annotation.GetMapping
 import org.springframework.web.bind.annotation.PathVariable
 import org.springframework.web.bind.annotation.RequestParam
+import org.springframework.web.context.request.ServletWebRequest
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody
 
 interface GameRestController<GroupDTO, PuzzleDTO, CategoryDTO, RecDTO: RecordDTO<*>> {
     @get:GetMapping(path = ["/groups"], produces = [MediaType.APPLICATION_JSON_VALUE])
@@ -47,4 +50,15 @@ interface GameRestController<GroupDTO, PuzzleDTO, CategoryDTO, RecDTO: RecordDTO
 
     @GetMapping(path = ["/puzzle/{puzzleId}/category/{categoryId}/record"], produces = [MediaType.APPLICATION_JSON_VALUE])
     fun getRecord(@PathVariable puzzleId: String, @PathVariable categoryId: String): RecDTO?
-}
\ No newline at end of file
+
+    /**
+     * The whole archive at [commit] (default: the current head), as one record per line or as a zip with the data files.
+     * Cacheable forever for a given commit hash.
+     */
+    @GetMapping(path = ["/export"])
+    fun export(
+        @RequestParam(required = false) commit: String?,
+        @RequestParam(required = false, defaultValue = "NDJSON") format: ArchiveExport.Format,
+        request: ServletWebRequest
+    ): ResponseEntity<StreamingResponseBody>?
+}
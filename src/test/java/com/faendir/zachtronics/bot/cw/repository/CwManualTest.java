@@ -77,6 +77,7 @@ class CwManualTest {
             repository.rebuildRedditLeaderboard(puzzle, "");
             System.out.println("Done " + puzzle.getDisplayName());
         }
+        repository.getWikiWriter().flush();
 
         String page = repository.getRedditService().getWikiPage(repository.getSubreddit(), repository.getWikiPageName())
                                 .replaceAll("file:/tmp/cw-leaderboard[0-9]+/",
@@ -73,6 +73,7 @@ class FcManualTest {
             repository.rebuildRedditLeaderboard(puzzle, "");
             System.out.println("Done " + puzzle.getDisplayName());
         }
+        repository.getWikiWriter().flush();
 
         String page = repository.getRedditService().getWikiPage(repository.getSubreddit(), repository.getWikiPageName())
                                 .replaceAll("file:/tmp/fc-leaderboard[0-9]+/",
@@ -95,6 +95,7 @@ class FpManualTest {
             repository.rebuildRedditLeaderboard(puzzle, "");
             System.out.println("Done " + puzzle.getDisplayName());
         }
+        repository.getWikiWriter().flush();
 
         String page = repository.getRedditService().getWikiPage(repository.getSubreddit(), repository.getWikiPageName())
                                 .replaceAll("file:/tmp/fp-leaderboard[0-9]+/",
@@ -68,6 +68,7 @@ class IfManualTest {
             repository.rebuildRedditLeaderboard(puzzle, "");
             System.out.println("Done " + puzzle.getDisplayName());
         }
+        repository.getWikiWriter().flush();
 
         String page = repository.getRedditService().getWikiPage(repository.getSubreddit(), repository.getWikiPageName())
                                 .replaceAll("file:/tmp/if-leaderboard[0-9]+/",
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2023
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.faendir.zachtronics.bot.repository;
+
+import com.faendir.zachtronics.bot.sc.repository.ScSolution;
+import com.opencsv.*;
+import com.opencsv.enums.CSVReaderNullFieldIndicator;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PsvCodecTest {
+    private static final List<String[]> ROWS = List.of(
+            new String[]{"45/1/14", "Zig", "https://i.imgur.com/abc.gif", null, "C,CNB"},
+            new String[]{"100/1/8/BP", null, null, "video", null},
+            new String[]{"7/2/3", "a|b", "say \"hi\"", "back\\slash", "multi\nline"},
+            new String[]{"", "trailing", ""});
+
+    @Test
+    public void testWriteMatchesOpencsv() throws IOException {
+        assertEquals(writeWithOpencsv(ROWS), PsvCodec.write(ROWS));
+    }
+
+    @Test
+    public void testReadMatchesOpencsv() throws IOException {
+        String quoted = writeWithOpencsv(ROWS);
+        assertRowsEqual(readWithOpencsv(quoted), PsvCodec.read(quoted, String[]::clone));
+
+        String plain = "45/1/14|Zig||video|C,CNB\n100/1/8/BP||||\n1/1/1|x|y|z|";
+        assertRowsEqual(readWithOpencsv(plain), PsvCodec.read(plain, String[]::clone));
+    }
+
+    @Test
+    public void testReadTestIndexes() throws IOException {
+        try (Stream<Path> files = Files.walk(Paths.get("src/test/resources/repositories"))) {
+            for (Path index : files.filter(p -> p.endsWith("solutions.psv")).toList()) {
+                String text = Files.readString(index);
+                List<String[]> rows = PsvCodec.read(text, String[]::clone);
+                assertRowsEqual(readWithOpencsv(text), rows);
+                assertEquals(writeWithOpencsv(rows), PsvCodec.write(rows), index.toString());
+            }
+        }
+    }
+
+    @Test
+    public void testTypedReadMatchesOpencsv() throws IOException {
+        try (Stream<Path> files = Files.walk(Paths.get("src/test/resources/repositories/sc-archive"))) {
+            for (Path index : files.filter(p -> p.endsWith("solutions.psv")).toList()) {
+                String text = Files.readString(index);
+                List<ScSolution> solutions = PsvCodec.read(text, ScSolution::unmarshal);
+                assertEquals(readWithOpencsv(text).stream().map(ScSolution::unmarshal).toList(), solutions, index.toString());
+
+                List<String[]> rows = solutions.stream().map(ScSolution::marshal).toList();
+                assertEquals(writeWithOpencsv(rows), PsvCodec.write(rows), index.toString());
+            }
+        }
+    }
+
+    private static void assertRowsEqual(List<String[]> expected, List<String[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+
+    private static String writeWithOpencsv(List<String[]> rows) throws IOException {
+        StringWriter writer = new StringWriter();
+        try (ICSVWriter csvWriter = new CSVWriterBuilder(writer).withSeparator('|').build()) {
+            csvWriter.writeAll(rows, false);
+        }
+        return writer.toString();
+    }
+
+    private static List<String[]> readWithOpencsv(String text) throws IOException {
+        CSVParser parser = new CSVParserBuilder().withSeparator('|').withFieldAsNull(CSVReaderNullFieldIndicator.BOTH).build();
+        try (CSVReader csvReader = new CSVReaderBuilder(new StringReader(text)).withCSVParser(parser).build()) {
+            return csvReader.readAll();
+        }
+        catch (com.opencsv.exceptions.CsvException e) {
+            throw new IOException(e);
+        }
+    }
+}
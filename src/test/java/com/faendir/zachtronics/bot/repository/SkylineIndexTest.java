@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2023
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.faendir.zachtronics.bot.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SkylineIndexTest {
+
+    /** same rules as the games' frontierCompare, the last coordinate has to match */
+    private static int frontierCompare(int[] p1, int[] p2) {
+        if (p1[p1.length - 1] != p2[p2.length - 1])
+            return 0;
+        boolean better = true;
+        boolean worse = true;
+        for (int i = 0; i < p1.length - 1; i++) {
+            better &= p1[i] <= p2[i];
+            worse &= p1[i] >= p2[i];
+        }
+        return better ? -1 : worse ? 1 : 0;
+    }
+
+    @Test
+    public void testMatchesLinearScan() {
+        Random random = new Random(42);
+        List<int[]> points = new ArrayList<>();
+        for (int i = 0; i < 300; i++)
+            points.add(randomPoint(random));
+
+        DominanceIndex<int[]> linear = new LinearDominanceIndex<>(points, SkylineIndexTest::frontierCompare);
+        DominanceIndex<int[]> skyline = new SkylineIndex<>(points, p -> p[p.length - 1], p -> Arrays.copyOf(p, p.length - 1));
+
+        for (int round = 0; round < 500; round++) {
+            int[] candidate = randomPoint(random);
+            assertSameEntries(linear.findDominating(candidate), skyline.findDominating(candidate));
+            assertSameEntries(linear.findDominated(candidate), skyline.findDominated(candidate));
+
+            if (random.nextBoolean()) {
+                int[] removed = points.remove(random.nextInt(points.size()));
+                linear.remove(removed);
+                skyline.remove(removed);
+            }
+            else {
+                points.add(candidate);
+                linear.add(candidate);
+                skyline.add(candidate);
+            }
+        }
+    }
+
+    private static int[] randomPoint(Random random) {
+        return new int[]{random.nextInt(8), random.nextInt(8), random.nextInt(8), random.nextInt(2), random.nextInt(2), random.nextInt(3)};
+    }
+
+    private static void assertSameEntries(List<int[]> expected, List<int[]> actual) {
+        Set<int[]> expectedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        expectedSet.addAll(expected);
+        Set<int[]> actualSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        actualSet.addAll(actual);
+        assertEquals(expectedSet, actualSet);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2023
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.faendir.zachtronics.bot.repository;
+
+import com.faendir.zachtronics.bot.TestConfigurationKt;
+import com.faendir.zachtronics.bot.config.GitProperties;
+import com.faendir.zachtronics.bot.git.GitRepository;
+import com.faendir.zachtronics.bot.testutils.JGitNoExternalConfigReader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SolutionCacheTest {
+    private GitRepository gitRepository;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        JGitNoExternalConfigReader.Companion.install();
+        GitProperties gitProperties = new GitProperties();
+        gitProperties.setAccessToken("");
+        gitProperties.setUsername("zachtronics-bot-test");
+        gitRepository = TestConfigurationKt.createGitRepositoryFrom(Files.createTempDirectory("repository").toFile(), gitProperties);
+        commit("a", "b");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        gitRepository.cleanup();
+    }
+
+    private void commit(String... puzzleDirs) throws IOException {
+        try (GitRepository.ReadWriteAccess access = gitRepository.acquireWriteAccess()) {
+            for (String puzzleDir : puzzleDirs) {
+                File file = new File(access.getRepo(), puzzleDir + "/solutions.psv");
+                file.getParentFile().mkdirs();
+                Files.writeString(file.toPath(), access.currentHash());
+                access.add(file);
+            }
+            access.commit("update " + String.join(", ", puzzleDirs));
+        }
+    }
+
+    @Test
+    public void testInterleavedSnapshots() throws IOException {
+        SolutionCache<String> cache = new SolutionCache<>();
+        List<String> loads = new ArrayList<>();
+
+        try (GitRepository.Snapshot older = gitRepository.snapshot()) {
+            commit("b");
+            try (GitRepository.Snapshot newer = gitRepository.snapshot()) {
+                assertEquals("a@newer", cache.get(newer, "a", () -> load(loads, "a@newer")));
+                assertEquals("b@newer", cache.get(newer, "b", () -> load(loads, "b@newer")));
+
+                // the older snapshot shares a, but has to read its own b
+                assertEquals("a@newer", cache.get(older, "a", () -> load(loads, "a@older")));
+                assertEquals("b@older", cache.get(older, "b", () -> load(loads, "b@older")));
+                assertEquals("b@older", cache.get(older, "b", () -> load(loads, "b@older")));
+
+                // and reading it left the newer entries alone
+                assertEquals("a@newer", cache.get(newer, "a", () -> load(loads, "a@newer")));
+                assertEquals("b@newer", cache.get(newer, "b", () -> load(loads, "b@newer")));
+            }
+        }
+        assertEquals(List.of("a@newer", "b@newer", "b@older", "b@older"), loads);
+    }
+
+    private static String load(List<String> loads, String index) {
+        loads.add(index);
+        return index;
+    }
+}
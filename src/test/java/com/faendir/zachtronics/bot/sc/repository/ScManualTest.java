@@ -85,6 +85,7 @@ class ScManualTest {
             repository.rebuildRedditLeaderboard(puzzle, "");
             System.out.println("Done " + puzzle.getDisplayName());
         }
+        repository.getWikiWriter().flush();
 
         String pages = Arrays.stream(ScGroup.values())
                              .map(ScGroup::getWikiPage).distinct()
@@ -73,6 +73,21 @@ public class SolRepoFindTest {
         assertEquals(puzzle.getSupportedCategories(), coveredCategories);
     }
 
+    @Test
+    public void testFindMatchesCategoryHolders() {
+        for (ScPuzzle puzzle : List.of(ScPuzzle.research_example_1, ScPuzzle.sensing_6, ScPuzzle.bonding_7)) {
+            List<CategoryRecord<ScRecord, ScCategory>> categoryHolders = repository.findCategoryHolders(puzzle, false);
+            for (ScCategory category : ScCategory.values()) {
+                ScRecord expected = categoryHolders.stream()
+                                                   .filter(cr -> cr.getCategories().contains(category))
+                                                   .map(CategoryRecord::getRecord)
+                                                   .findFirst()
+                                                   .orElse(null);
+                assertEquals(expected, repository.find(puzzle, category));
+            }
+        }
+    }
+
     @Test
     public void testFindParetoFrontier() {
         List<?> paretoFrontier = repository.findCategoryHolders(ScPuzzle.research_example_1, true);
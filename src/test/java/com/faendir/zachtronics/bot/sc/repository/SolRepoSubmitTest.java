@@ -20,11 +20,13 @@ import com.faendir.zachtronics.bot.BotTest;
 import com.faendir.zachtronics.bot.repository.CategoryRecord;
 import com.faendir.zachtronics.bot.repository.SubmitResult;
 import com.faendir.zachtronics.bot.sc.model.*;
+import com.faendir.zachtronics.bot.validation.ValidationResult;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -78,6 +80,32 @@ public class SolRepoSubmitTest {
         assertInstanceOf(SubmitResult.NothingBeaten.class, doSubmitData(data)); // just give up, man
     }
 
+    @Test
+    public void testSubmitAllMatchesSubmit() {
+        // same steps as testSubmitData, in one batch
+        List<String> datas = List.of("SOLUTION:A Most Unfortunate Malfunction,12345ieee,50-50-50",
+                                     "SOLUTION:A Most Unfortunate Malfunction,12345ieee,45-1-14\nbunch of stuff...",
+                                     "SOLUTION:A Most Unfortunate Malfunction,12345ieee,45-1-14\nbunch of stuff...",
+                                     "SOLUTION:A Most Unfortunate Malfunction,12345ieee,45-1-14\ndifferent stuff...",
+                                     "SOLUTION:A Most Unfortunate Malfunction,BadGuy,45-1-14\ndifferent stuff...",
+                                     "SOLUTION:A Most Unfortunate Malfunction,BadGuy,50-1-50\nsome more stuff...");
+        List<ValidationResult<ScSubmission>> submissions =
+                datas.stream()
+                     .map(data -> ScSubmission.fromDataNoValidation(data, null, null))
+                     .<ValidationResult<ScSubmission>>map(ValidationResult.Valid::new)
+                     .toList();
+
+        List<SubmitResult<ScRecord, ScCategory>> results = repository.submitAll(submissions);
+        assertEquals(List.of(SubmitResult.Success.class, SubmitResult.Success.class, SubmitResult.AlreadyPresent.class,
+                             SubmitResult.Success.class, SubmitResult.AlreadyPresent.class, SubmitResult.NothingBeaten.class),
+                     results.stream().map(Object::getClass).toList());
+
+        List<ScScore> frontier = repository.findCategoryHolders(ScPuzzle.bonding_boss, true).stream()
+                                           .map(cr -> cr.getRecord().getScore())
+                                           .toList();
+        assertEquals(List.of(new ScScore(45, 1, 14, false, false)), frontier);
+    }
+
     @Test
     public void testSubmitNewCategories() {
         // we start with a 100/100/100 that holds no categories
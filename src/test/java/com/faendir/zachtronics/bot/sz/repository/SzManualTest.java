@@ -73,6 +73,7 @@ public class SzManualTest {
 
             System.out.println("Done " + puzzle.getDisplayName());
         }
+        repository.getWikiWriter().flush();
 
         String page = redditService.getWikiPage(Subreddit.SHENZHEN_IO, "index")
                                    .replaceAll("file:/tmp/sz-leaderboard[0-9]+/",
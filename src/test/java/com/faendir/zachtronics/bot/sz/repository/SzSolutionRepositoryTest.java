@@ -17,11 +17,13 @@
 package com.faendir.zachtronics.bot.sz.repository;
 
 import com.faendir.zachtronics.bot.BotTest;
+import com.faendir.zachtronics.bot.repository.CategoryRecord;
 import com.faendir.zachtronics.bot.repository.SubmitResult;
 import com.faendir.zachtronics.bot.sz.model.SzCategory;
 import com.faendir.zachtronics.bot.sz.model.SzPuzzle;
 import com.faendir.zachtronics.bot.sz.model.SzRecord;
 import com.faendir.zachtronics.bot.sz.model.SzSubmission;
+import com.faendir.zachtronics.bot.validation.ValidationResult;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,7 +31,9 @@ import org.springframework.core.io.ClassPathResource;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -70,6 +74,74 @@ public class SzSolutionRepositoryTest {
         assertThrows(RuntimeException.class, () -> doSubmit(finalContent)); // nonsensical
     }
 
+    @Test
+    public void testSubmitAll() throws IOException {
+        ClassPathResource resource = new ClassPathResource(
+                "repositories/sz-leaderboard/first_campaign/fake-surveillance-camera/fake-surveillance-camera-6-57-8.txt");
+        String content = Files.readString(resource.getFile().toPath()).replace("[power-usage] 57", "[power-usage] 54");
+        SzSubmission submission = SzSubmission.fromData(content, "someguy", null);
+
+        List<SubmitResult<SzRecord, SzCategory>> results = repository.submitAll(
+                List.of(new ValidationResult.Valid<>(submission),
+                        new ValidationResult.Valid<>(submission),
+                        new ValidationResult.Unparseable<>("nonsense")));
+        assertInstanceOf(SubmitResult.Success.class, results.get(0));
+        assertInstanceOf(SubmitResult.AlreadyPresent.class, results.get(1)); // same batch
+        assertInstanceOf(SubmitResult.Failure.class, results.get(2));
+    }
+
+    @Test
+    public void testSubmitDryRun() throws IOException {
+        ClassPathResource resource = new ClassPathResource(
+                "repositories/sz-leaderboard/first_campaign/fake-surveillance-camera/fake-surveillance-camera-6-57-8.txt");
+        String content = Files.readString(resource.getFile().toPath());
+        List<CategoryRecord<SzRecord, SzCategory>> frontier = repository.findCategoryHolders(SzPuzzle.Sz000, true);
+        List<Set<SzCategory>> categories = categoriesOf(frontier);
+
+        SzSubmission better = SzSubmission.fromData(content.replace("[power-usage] 57", "[power-usage] 53"), "someguy", null);
+        assertInstanceOf(SubmitResult.Success.class, repository.submitDryRun(better));
+        SzSubmission worse = SzSubmission.fromData(content.replace("[power-usage] 57", "[power-usage] 100"), "someguy", null);
+        assertInstanceOf(SubmitResult.NothingBeaten.class, repository.submitDryRun(worse));
+
+        // nothing was archived and the cached solutions kept their categories
+        assertEquals(frontier, repository.findCategoryHolders(SzPuzzle.Sz000, true));
+        assertEquals(categories, categoriesOf(frontier));
+    }
+
+    @Test
+    public void testSubmitLeavesCachedSolutions() throws IOException {
+        ClassPathResource resource = new ClassPathResource(
+                "repositories/sz-leaderboard/first_campaign/fake-surveillance-camera/fake-surveillance-camera-6-57-8.txt");
+        String content = Files.readString(resource.getFile().toPath());
+        List<CategoryRecord<SzRecord, SzCategory>> frontier = repository.findCategoryHolders(SzPuzzle.Sz000, true);
+        List<Set<SzCategory>> categories = categoriesOf(frontier);
+
+        // the submission starts from the cached solutions and takes some of their categories
+        assertInstanceOf(SubmitResult.Success.class, doSubmit(content.replace("[power-usage] 57", "[power-usage] 53")));
+
+        assertEquals(categories, categoriesOf(frontier));
+        assertNotEquals(frontier, repository.findCategoryHolders(SzPuzzle.Sz000, true));
+    }
+
+    /** copies, the records share their category sets with the cache */
+    private static List<Set<SzCategory>> categoriesOf(List<CategoryRecord<SzRecord, SzCategory>> categoryRecords) {
+        return categoryRecords.stream().map(cr -> Set.copyOf(cr.getCategories())).toList();
+    }
+
+    @Test
+    public void testExport() throws IOException {
+        String head = repository.exportCommit(null);
+        List<String> files = new ArrayList<>();
+        repository.export(head, List.of(SzPuzzle.Sz000), (puzzle, categoryRecord, dataFile, data) -> {
+            assertNotNull(data);
+            files.add(dataFile);
+        });
+        assertEquals(4, files.size()); // the whole frontier
+        assertTrue(files.contains("first_campaign/fake-surveillance-camera/fake-surveillance-camera-6-57-8.txt"));
+
+        assertThrows(IllegalArgumentException.class, () -> repository.exportCommit("0000000000000000000000000000000000000000"));
+    }
+
     @NotNull
     private SubmitResult<SzRecord, SzCategory> doSubmit(String content) {
         return repository.submit(SzSubmission.fromData(content, "someguy", null));
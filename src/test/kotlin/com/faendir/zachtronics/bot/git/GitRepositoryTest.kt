@@ -22,11 +22,15 @@ import com.faendir.zachtronics.bot.testutils.JGitNoExternalConfigReader
 import kotlinx.coroutines.delay
 import kotlinx.coroutines.runBlocking
 import kotlinx.datetime.Clock
+import org.eclipse.jgit.api.Git
 import org.eclipse.jgit.diff.DiffEntry
+import org.eclipse.jgit.lib.ObjectId
 import org.junit.jupiter.api.AfterEach
 import org.junit.jupiter.api.BeforeEach
 import org.junit.jupiter.api.Test
+import org.springframework.boot.actuate.health.Status
 import strikt.api.expectThat
+import strikt.api.expectThrows
 import strikt.assertions.first
 import strikt.assertions.hasSize
 import strikt.assertions.isEmpty
@@ -34,7 +38,13 @@ import strikt.assertions.isEqualTo
 import strikt.assertions.isFalse
 import strikt.assertions.isTrue
 import java.io.File
+import java.net.URI
 import java.nio.file.Files
+import java.util.*
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
 
 class GitRepositoryTest {
     init {
@@ -169,4 +179,340 @@ class GitRepositoryTest {
             thread.interrupt()
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    fun `should fail access if clone failed`() {
+        val missing = GitRepository(gitProperties, "missing", File("does-not-exist").toURI().toString())
+        try {
+            expectThrows<CompletionException> { missing.acquireReadAccess() }
+            expectThat(missing.ready.isCompletedExceptionally).isTrue()
+        } finally {
+            missing.cleanup()
+        }
+    }
+
+    @Test
+    fun `should reuse persistent clone`() {
+        val workspace = Files.createTempDirectory("workspace").toFile()
+        val persistentProperties = GitProperties().apply {
+            accessToken = ""
+            username = "zachtronics-bot-test"
+            workspaceDirectory = workspace.path
+        }
+        try {
+            val first = GitRepository(persistentProperties, "persistent", gitRepository.url)
+            first.acquireWriteAccess().use { access ->
+                val file = File(access.repo, "file")
+                file.writeText("file")
+                access.add(file)
+                access.commitAndPush("file")
+            }
+            val hash = first.acquireReadAccess().use { it.currentHash() }
+            first.cleanup()
+            // a fresh clone would not have this
+            val marker = File(workspace, "persistent/.git/marker").apply { writeText("marker") }
+
+            val second = GitRepository(persistentProperties, "persistent", gitRepository.url)
+            second.acquireReadAccess().use { access ->
+                expectThat(access.currentHash()).isEqualTo(hash)
+                expectThat(File(access.repo, "file").exists()).isTrue()
+            }
+            expectThat(marker.exists()).isTrue()
+            second.cleanup()
+        } finally {
+            workspace.deleteRecursively()
+        }
+    }
+
+    @Test
+    fun `should keep unpushed commits of persistent clone`() {
+        val workspace = Files.createTempDirectory("workspace").toFile()
+        val persistentProperties = GitProperties().apply {
+            accessToken = ""
+            username = "zachtronics-bot-test"
+            workspaceDirectory = workspace.path
+        }
+        try {
+            val first = GitRepository(persistentProperties, "persistent", gitRepository.url)
+            val localHash = first.acquireWriteAccess().use { access ->
+                val file = File(access.repo, "conflict")
+                file.writeText("local")
+                access.add(file)
+                access.commit("local change")
+                access.currentHash()
+            }
+            first.cleanup()
+            val origin = File(URI(gitRepository.url))
+            val remoteHash = Git.open(origin).use { remote ->
+                File(origin, "conflict").writeText("remote")
+                remote.add().addFilepattern("conflict").call()
+                remote.commit()
+                    .setAuthor("zachtronics-bot-test", "zachtronics-bot-test@faendir.com")
+                    .setCommitter("zachtronics-bot-test", "zachtronics-bot-test@faendir.com")
+                    .setMessage("remote change")
+                    .call().name
+            }
+
+            val second = GitRepository(persistentProperties, "persistent", gitRepository.url)
+            second.acquireReadAccess().use { access ->
+                expectThat(access.currentHash()).isEqualTo(remoteHash)
+                val movedAside = Git.open(access.repo).use { git ->
+                    git.branchList().call().filter { it.name.contains(GitRepository.MOVED_ASIDE_PREFIX) }
+                }
+                expectThat(movedAside).hasSize(1)
+                expectThat(movedAside.first().objectId.name).isEqualTo(localHash)
+            }
+            second.cleanup()
+        } finally {
+            workspace.deleteRecursively()
+        }
+    }
+
+    @Test
+    fun `should pick up remote changes after webhook`() {
+        val before = gitRepository.acquireReadAccess().use { it.currentHash() }
+        val origin = File(URI(gitRepository.url))
+        val remoteHash = Git.open(origin).use { remote ->
+            File(origin, "remote").writeText("remote")
+            remote.add().addFilepattern("remote").call()
+            remote.commit()
+                .setAuthor("zachtronics-bot-test", "zachtronics-bot-test@faendir.com")
+                .setCommitter("zachtronics-bot-test", "zachtronics-bot-test@faendir.com")
+                .setMessage("remote change")
+                .call().name
+        }
+        // nothing is fetched until we are told about it
+        expectThat(gitRepository.acquireReadAccess().use { it.currentHash() }).isEqualTo(before)
+
+        gitRepository.updateRemoteHash(remoteHash)
+        val deadline = System.currentTimeMillis() + 10_000
+        while (gitRepository.acquireReadAccess().use { it.currentHash() } != remoteHash && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50)
+        }
+        gitRepository.acquireReadAccess().use { access ->
+            expectThat(access.currentHash()).isEqualTo(remoteHash)
+            expectThat(File(access.repo, "remote").exists()).isTrue()
+        }
+    }
+
+    @Test
+    fun `should move conflicting local commits aside`() {
+        val localHash = gitRepository.acquireWriteAccess().use { access ->
+            val file = File(access.repo, "conflict")
+            file.writeText("local")
+            access.add(file)
+            access.commit("local change")
+            access.currentHash()
+        }
+        val origin = File(URI(gitRepository.url))
+        val remoteHash = Git.open(origin).use { remote ->
+            File(origin, "conflict").writeText("remote")
+            remote.add().addFilepattern("conflict").call()
+            remote.commit()
+                .setAuthor("zachtronics-bot-test", "zachtronics-bot-test@faendir.com")
+                .setCommitter("zachtronics-bot-test", "zachtronics-bot-test@faendir.com")
+                .setMessage("remote change")
+                .call().name
+        }
+
+        gitRepository.updateRemoteHash(remoteHash)
+        val deadline = System.currentTimeMillis() + 10_000
+        while (gitRepository.acquireReadAccess().use { it.currentHash() } != remoteHash && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50)
+        }
+        gitRepository.acquireReadAccess().use { access ->
+            expectThat(access.currentHash()).isEqualTo(remoteHash)
+            expectThat(File(access.repo, "conflict").readText()).isEqualTo("remote")
+            val movedAside = Git.open(access.repo).use { git ->
+                git.branchList().call().filter { it.name.contains(GitRepository.MOVED_ASIDE_PREFIX) }
+            }
+            expectThat(movedAside).hasSize(1)
+            expectThat(movedAside.first().objectId.name).isEqualTo(localHash)
+        }
+        expectThat(gitRepository.health().status).isEqualTo(Status.DOWN)
+    }
+
+    @Test
+    fun `should push a burst of commits at once`() {
+        val pushes = gitRepository.acquireWriteAccess().use { access ->
+            (1..3).map {
+                val file = File(access.repo, "file$it")
+                file.writeText("file$it")
+                access.add(file)
+                access.commitAndPush("file$it")
+            }
+        }
+        val localHash = gitRepository.acquireReadAccess().use { it.currentHash() }
+        // nothing went out while commits kept coming
+        expectThat(pushes.none { it.isDone }).isTrue()
+
+        CompletableFuture.allOf(*pushes.toTypedArray()).get(30, TimeUnit.SECONDS)
+        Git.open(File(URI(gitRepository.url))).use { remote ->
+            expectThat(remote.repository.resolve("refs/heads/master").name).isEqualTo(localHash)
+        }
+    }
+
+    @Test
+    fun `should scope status to path`() {
+        gitRepository.acquireWriteAccess().use { access ->
+            val inside = File(access.repo, "puzzle/file").apply { parentFile.mkdirs(); writeText("inside") }
+            File(access.repo, "other/file").apply { parentFile.mkdirs(); writeText("outside") }
+
+            expectThat(access.status(inside.parentFile).untracked).isEqualTo(setOf("puzzle/file"))
+            expectThat(access.status().untracked).hasSize(2)
+        }
+    }
+
+    @Test
+    fun `should allow concurrent write locks on different paths`() {
+        gitRepository.acquireWriteAccess("puzzle-a").use {
+            val thread = Thread {
+                gitRepository.acquireWriteAccess("puzzle-b").close()
+            }
+            thread.start()
+            thread.join(1000)
+            expectThat(thread.isAlive).isFalse()
+        }
+    }
+
+    @Test
+    fun `should not allow additional write lock on same path`() {
+        gitRepository.acquireWriteAccess("puzzle-a").use {
+            val thread = Thread {
+                gitRepository.acquireWriteAccess("puzzle-a").close()
+            }
+            thread.start()
+            thread.join(1000)
+            expectThat(thread.isAlive).isTrue()
+            thread.interrupt()
+        }
+    }
+
+    @Test
+    fun `should not allow path write lock during whole repository write`() {
+        gitRepository.acquireWriteAccess().use {
+            val thread = Thread {
+                gitRepository.acquireWriteAccess("puzzle-a").close()
+            }
+            thread.start()
+            thread.join(1000)
+            expectThat(thread.isAlive).isTrue()
+            thread.interrupt()
+        }
+    }
+
+    @Test
+    fun `should read snapshot during write`() {
+        val file = gitRepository.acquireWriteAccess().use { access ->
+            File(access.repo, "file").apply {
+                writeText("old")
+                access.add(this)
+                access.commit("old")
+            }
+        }
+        gitRepository.snapshot().use { snapshot ->
+            gitRepository.acquireWriteAccess().use { access ->
+                file.writeText("new")
+                access.add(file)
+                access.commit("new")
+
+                // neither the lock nor the newer commit get in the way
+                val thread = Thread {
+                    gitRepository.snapshot().use { expectThat(it.open(file)!!.bytes.decodeToString()).isEqualTo("new") }
+                }
+                thread.start()
+                thread.join(1000)
+                expectThat(thread.isAlive).isFalse()
+            }
+            expectThat(snapshot.open(file)!!.bytes.decodeToString()).isEqualTo("old")
+            expectThat(snapshot.open(File(snapshot.repo, "missing"))).isEqualTo(null)
+        }
+    }
+
+    @Test
+    fun `should return net changes after cursor`() {
+        val cursor = gitRepository.snapshot().use { it.currentHash() }
+        gitRepository.acquireWriteAccess().use { access ->
+            val transient = File(access.repo, "transient")
+            transient.writeText("transient")
+            access.add(transient)
+            access.commit("add transient")
+            val file = File(access.repo, "file")
+            file.writeText("old")
+            access.add(file)
+            access.commit("add file")
+            access.rm(transient)
+            file.writeText("new")
+            access.add(file)
+            access.commit("remove transient, update file")
+        }
+
+        gitRepository.snapshot().use { snapshot ->
+            expectThat(snapshot.changesAfter(cursor)!!).hasSize(1).and {
+                first().get { type }.isEqualTo(DiffEntry.ChangeType.ADD)
+                first().get { newName }.isEqualTo("file")
+                first().get { newContent!!.openStream().bufferedReader().use { it.readText() } }.isEqualTo("new")
+            }
+            expectThat(snapshot.changesAfter(snapshot.currentHash())!!).isEmpty()
+            expectThat(snapshot.changesAfter(ObjectId.zeroId().name)).isEqualTo(null)
+        }
+    }
+
+    @Test
+    fun `should return changes after cursor behind a merge`() {
+        gitRepository.acquireWriteAccess().use { access ->
+            val file = File(access.repo, "local")
+            file.writeText("local")
+            access.add(file)
+            access.commit("local change")
+        }
+        val origin = File(URI(gitRepository.url))
+        val remoteHash = Git.open(origin).use { remote ->
+            File(origin, "remote").writeText("remote")
+            remote.add().addFilepattern("remote").call()
+            remote.commit()
+                .setAuthor("zachtronics-bot-test", "zachtronics-bot-test@faendir.com")
+                .setCommitter("zachtronics-bot-test", "zachtronics-bot-test@faendir.com")
+                .setMessage("remote change")
+                .call().name
+        }
+        gitRepository.updateRemoteHash(remoteHash)
+        val deadline = System.currentTimeMillis() + 10_000
+        while (!gitRepository.acquireReadAccess().use { File(it.repo, "remote").exists() } && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50)
+        }
+
+        // the remote commit is only reachable through the second parent of the merge
+        gitRepository.snapshot().use { snapshot ->
+            expectThat(snapshot.changesAfter(remoteHash)!!).hasSize(1).and {
+                first().get { type }.isEqualTo(DiffEntry.ChangeType.ADD)
+                first().get { newName }.isEqualTo("local")
+            }
+        }
+    }
+
+    @Test
+    fun `should apply queued writes in order and turn away overflow`() {
+        val smallQueue = createGitRepositoryFrom(Files.createTempDirectory("repository").toFile(), GitProperties().apply {
+            accessToken = ""
+            username = "zachtronics-bot-test"
+            writeQueueCapacity = 1
+            lockStripes = 1
+        })
+        try {
+            val release = CountDownLatch(1)
+            val order = Collections.synchronizedList(mutableListOf<Int>())
+            val running = smallQueue.enqueueWrite { release.await(); order.add(1) }
+            Thread.sleep(100) // let the writer pick it up
+            val queued = smallQueue.enqueueWrite { order.add(2) }
+            val overflow = smallQueue.enqueueWrite { order.add(3) }
+
+            expectThat(overflow.isCompletedExceptionally).isTrue()
+            release.countDown()
+            CompletableFuture.allOf(running, queued).get(10, TimeUnit.SECONDS)
+            expectThat(order).isEqualTo(listOf(1, 2))
+        } finally {
+            smallQueue.cleanup()
+        }
+    }
+}
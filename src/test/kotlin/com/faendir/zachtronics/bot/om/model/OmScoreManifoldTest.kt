@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2023
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.faendir.zachtronics.bot.om.model
+
+import com.faendir.zachtronics.bot.om.dummyOmScore
+import com.faendir.zachtronics.bot.utils.InfinInt.Companion.toInfinInt
+import org.junit.jupiter.api.Test
+import strikt.api.expectThat
+import strikt.assertions.containsExactly
+import kotlin.random.Random
+
+class OmScoreManifoldTest {
+    @Test
+    fun `frontier matches comparing every pair`() {
+        val random = Random(42)
+        repeat(50) {
+            val scores = List(random.nextInt(1, 80)) { randomScore(random, 4) }
+            for (manifold in OmScoreManifold.entries) {
+                expectThat(manifold.frontierOf(scores) { it }).containsExactly(pairwiseFrontier(manifold, scores))
+            }
+        }
+    }
+
+    /** sizes of the largest real frontiers, with wide ranges so most scores are incomparable */
+    @Test
+    fun `large frontier matches comparing every pair`() {
+        val random = Random(7)
+        val scores = List(1500) { randomScore(random, 200) }
+        for (manifold in OmScoreManifold.entries) {
+            expectThat(manifold.frontierOf(scores) { it }).containsExactly(pairwiseFrontier(manifold, scores))
+        }
+    }
+
+    private fun pairwiseFrontier(manifold: OmScoreManifold, scores: List<OmScore>): List<OmScore> =
+        scores.filter { s1 ->
+            scores.none { s2 -> manifold.frontierCompare(s1, s2).let { c -> c.all { it >= 0 } && c.any { it > 0 } } }
+        }
+
+    private fun randomScore(random: Random, range: Int): OmScore {
+        val looping = random.nextBoolean()
+        return dummyOmScore.copy(
+            cost = random.nextInt(range),
+            instructions = random.nextInt(range),
+            overlap = random.nextInt(4) == 0,
+            trackless = random.nextBoolean(),
+            cycles = random.nextInt(range),
+            area = random.nextInt(range),
+            height = random.nextInt(range).takeIf { random.nextBoolean() },
+            width = random.nextInt(range).toDouble().takeIf { random.nextBoolean() },
+            rate = if (looping) random.nextInt(range).toDouble() else null,
+            areaINF = if (looping) random.nextInt(range).toInfinInt() else null,
+            heightINF = if (looping) random.nextInt(range).toInfinInt() else null,
+            widthINF = if (looping) random.nextInt(range).toDouble() else null,
+        )
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2023
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.faendir.zachtronics.bot.om.repository
+
+import com.faendir.zachtronics.bot.om.model.OmPuzzle
+import com.faendir.zachtronics.bot.om.model.OmRecord
+import com.faendir.zachtronics.bot.om.model.OmScore
+import com.faendir.zachtronics.bot.om.model.OmScoreManifold
+import kotlinx.serialization.ExperimentalSerializationApi
+import kotlinx.serialization.json.Json
+import kotlinx.serialization.json.decodeFromStream
+import org.junit.jupiter.api.Disabled
+import org.junit.jupiter.api.Test
+import java.io.File
+
+@OptIn(ExperimentalSerializationApi::class)
+@Disabled("Massive tests only for manual testing or migrations")
+class OmManualTest {
+    private val json = Json { allowSpecialFloatingPointValues = true }
+
+    /** needs a checkout of om-leaderboard next to this repository */
+    @Test
+    fun benchmarkFrontierManifolds() {
+        val repo = File("../om-leaderboard")
+        val frontiers = OmPuzzle.entries
+            .mapNotNull { File(repo, "${it.group.name}/${it.name}").listFiles { file -> file.extension == "json" } }
+            .map { files -> files.map { file -> file.inputStream().buffered().use { json.decodeFromStream<OmRecord>(it) }.score } }
+            .sortedByDescending { it.size }
+        println("${frontiers.size} puzzles, ${frontiers.sumOf { it.size }} records, largest ${frontiers.first().size}")
+
+        for (scores in frontiers) {
+            for (manifold in OmScoreManifold.entries)
+                assert(manifold.frontierOf(scores) { it } == pairwiseFrontier(manifold, scores))
+        }
+
+        val rounds = 20
+        for (warmup in 0 until 3) {
+            var start = System.nanoTime()
+            repeat(rounds) {
+                for (scores in frontiers) {
+                    for (manifold in OmScoreManifold.entries) pairwiseFrontier(manifold, scores)
+                }
+            }
+            val pairwise = System.nanoTime() - start
+
+            start = System.nanoTime()
+            repeat(rounds) {
+                for (scores in frontiers) {
+                    for (manifold in OmScoreManifold.entries) manifold.frontierOf(scores) { it }
+                }
+            }
+            val skyline = System.nanoTime() - start
+
+            println("pairwise ${pairwise / 1_000_000} ms, skyline ${skyline / 1_000_000} ms")
+        }
+    }
+
+    /** what loadData did before the skyline */
+    private fun pairwiseFrontier(manifold: OmScoreManifold, scores: List<OmScore>): List<OmScore> =
+        scores.filter { s1 ->
+            scores.none { s2 -> manifold.frontierCompare(s1, s2).let { c -> c.all { it >= 0 } && c.any { it > 0 } } }
+        }
+}
@@ -213,4 +213,32 @@ class OmSolutionRepositoryTest {
 
         newLeaderboard.cleanup()
     }
-}
\ No newline at end of file
+
+    @Test
+    fun `external commits reload the changed puzzles`() {
+        val waterScore = dummyOmScore.copy(cost = 10, cycles = 20, area = 30)
+        repository.submit(dummyOmSubmission(OmPuzzle.STABILIZED_WATER, waterScore))
+        val other = OmSolutionRepository(leaderboard, mockk(relaxed = true), mockk(relaxed = true), mockk(relaxed = true))
+        expectThat(other.findCategoryHolders(OmPuzzle.ELECTRUM_SEPARATION, true)).isEmpty()
+
+        val electrumScore = dummyOmScore.copy(cost = 40, cycles = 50, area = 60)
+        repository.submit(dummyOmSubmission(OmPuzzle.ELECTRUM_SEPARATION, electrumScore))
+        expectThat(other.findCategoryHolders(OmPuzzle.ELECTRUM_SEPARATION, true)).isEmpty()
+        other.reload()
+
+        expectThat(other.findCategoryHolders(OmPuzzle.ELECTRUM_SEPARATION, true)).single().get { record.score }.isEqualTo(electrumScore)
+        expectThat(other.findCategoryHolders(OmPuzzle.STABILIZED_WATER, true)).single().get { record.score }.isEqualTo(waterScore)
+    }
+
+    @Test
+    fun `submissions leave earlier reads untouched`() {
+        repository.submit(dummyOmSubmission(OmPuzzle.STABILIZED_WATER, dummyOmScore.copy(cost = 10, cycles = 20, area = 30)))
+        val before = repository.findCategoryHolders(OmPuzzle.STABILIZED_WATER, true)
+        val categories = before.single().categories.toSet()
+
+        repository.submit(dummyOmSubmission(OmPuzzle.STABILIZED_WATER, dummyOmScore.copy(cost = 5, cycles = 5, area = 5)))
+
+        expectThat(before).single().get { this.categories }.isEqualTo(categories)
+        expectThat(repository.findCategoryHolders(OmPuzzle.STABILIZED_WATER, true)).single().get { record.score.cost }.isEqualTo(5)
+    }
+}
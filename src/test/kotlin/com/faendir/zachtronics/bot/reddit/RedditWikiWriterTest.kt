@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2023
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.faendir.zachtronics.bot.reddit
+
+import com.faendir.zachtronics.bot.config.RedditProperties
+import com.faendir.zachtronics.bot.testutils.TestRedditService
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Test
+import strikt.api.expectThat
+import strikt.assertions.containsExactly
+import strikt.assertions.isEqualTo
+import java.io.File
+import java.nio.file.Files
+import java.time.Duration
+import java.util.concurrent.TimeUnit
+
+class RedditWikiWriterTest {
+    private val directory = Files.createTempDirectory("reddit").toFile()
+    private val redditService = CountingRedditService(directory)
+    private val redditProperties = RedditProperties().apply {
+        wikiQuietPeriod = Duration.ofHours(1)
+        wikiMaxDelay = Duration.ofHours(1)
+        wikiRetryBackoff = Duration.ZERO
+    }
+    private val writer = RedditWikiWriter(redditService, redditProperties)
+
+    @AfterEach
+    internal fun tearDown() {
+        directory.deleteRecursively()
+    }
+
+    @Test
+    fun `should merge pending edits into one update`() {
+        redditService.updateWikiPage(Subreddit.SHENZHEN_IO, "index", "| [A]\n| [B]", "")
+        redditService.updates.clear()
+
+        writer.edit(Subreddit.SHENZHEN_IO, "index", "A", "A 1") { it.replace("| [A]", "| [A] 1") }
+        writer.edit(Subreddit.SHENZHEN_IO, "index", "B", "B 1") { it.replace("| [B]", "| [B] 1") }
+        // replaces the first edit of A
+        writer.edit(Subreddit.SHENZHEN_IO, "index", "A", "A 2") { it.replace("| [A]", "| [A] 2") }
+        writer.flush()
+
+        expectThat(redditService.getWikiPage(Subreddit.SHENZHEN_IO, "index")).isEqualTo("| [A] 2\n| [B] 1")
+        expectThat(redditService.updates).containsExactly("A 1; B 1; A 2")
+    }
+
+    @Test
+    fun `should flush after the quiet period`() {
+        redditProperties.wikiQuietPeriod = Duration.ZERO
+        val future = writer.edit(Subreddit.SPACECHEM, "main", "A", "A") { "| [A]" }
+        future.get(10, TimeUnit.SECONDS)
+
+        expectThat(redditService.getWikiPage(Subreddit.SPACECHEM, "main")).isEqualTo("| [A]")
+    }
+
+    @Test
+    fun `should retry failed updates`() {
+        redditService.failures = 2
+        writer.edit(Subreddit.INFINIFACTORY, "index", "A", "A") { "| [A]" }
+        writer.flush()
+
+        expectThat(redditService.getWikiPage(Subreddit.INFINIFACTORY, "index")).isEqualTo("| [A]")
+        expectThat(redditService.updates).containsExactly("A")
+    }
+
+    private class CountingRedditService(private val root: File) : TestRedditService(root) {
+        val updates = mutableListOf<String>()
+        var failures = 0
+
+        override fun updateWikiPage(subreddit: Subreddit, page: String, content: String, reason: String) {
+            if (failures > 0) {
+                failures--
+                throw IllegalStateException("reddit is down")
+            }
+            File(root, "${subreddit.id}/wiki").mkdirs()
+            super.updateWikiPage(subreddit, page, content, reason)
+            updates.add(reason)
+        }
+    }
+}
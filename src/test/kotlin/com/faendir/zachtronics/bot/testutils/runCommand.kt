@@ -16,6 +16,7 @@
 
 package com.faendir.zachtronics.bot.testutils
 
+import com.faendir.zachtronics.bot.discord.command.AbstractSubmitCommand
 import com.faendir.zachtronics.bot.discord.command.Command
 import com.faendir.zachtronics.bot.discord.command.security.DiscordUser
 import com.faendir.zachtronics.bot.model.StringFormat
@@ -52,7 +53,10 @@ fun mockGameCommandRun(gameCommand: Command.Group, subCommandName: String, args:
     every { interactionEvent.interaction.member } returns Optional.of(ieee)
 
 
-    val messageBuilder = (gameCommand.commands.find { it.name == subCommandName } as Command.BasicLeaf).handleEvent(interactionEvent)
+    val messageBuilder = when (val command = gameCommand.commands.find { it.name == subCommandName }) {
+        is AbstractSubmitCommand<*, *, *, *> -> command.handleEventAsync(interactionEvent).block()!!
+        else -> (command as Command.BasicLeaf).handleEvent(interactionEvent)
+    }
 
     val result = when(messageBuilder) {
         is SafePlainMessageBuilder -> listOf(messageBuilder.getContent()) + messageBuilder.getFiles().map { it.name() }